@@ -1,7 +1,9 @@
 package com.apirestlibrary.libraryapi;
 
+import com.apirestlibrary.libraryapi.api.mapper.BookMapper;
+import com.apirestlibrary.libraryapi.api.mapper.LoanMapper;
 import de.codecentric.boot.admin.server.config.EnableAdminServer;
-import org.modelmapper.ModelMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
@@ -20,13 +22,18 @@ public class LibraryApiApplication extends SpringBootServletInitializer {
 	public CommandLineRunner runner(){
 		return args -> {
 			List<String> emails = Arrays.asList("26054c6a99-b108c0@inbox.mailtrap.io");
-			emailService.sendEmailsList("Test service emails", emails);
+			emailService.sendEmails("Test", "Test service emails", emails);
 		};
 	}
 */
 	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
+	public BookMapper bookMapper(){
+		return Mappers.getMapper(BookMapper.class);
+	}
+
+	@Bean
+	public LoanMapper loanMapper(){
+		return Mappers.getMapper(LoanMapper.class);
 	}
 
 	public static void main(String[] args) {
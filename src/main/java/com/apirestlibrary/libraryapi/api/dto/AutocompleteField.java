@@ -0,0 +1,8 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+public enum AutocompleteField {
+
+    TITLE,
+
+    AUTHOR
+}
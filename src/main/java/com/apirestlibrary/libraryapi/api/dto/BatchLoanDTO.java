@@ -0,0 +1,28 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLoanDTO {
+
+    public static final int MAX_ITEMS = 100;
+
+    @NotEmpty
+    private String customer;
+
+    private String emailCustomer;
+
+    @NotEmpty
+    @Size(max = MAX_ITEMS)
+    private List<String> isbns;
+}
@@ -0,0 +1,19 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLoanItemDTO {
+
+    private String isbn;
+
+    private Long loanId;
+
+    private String error;
+}
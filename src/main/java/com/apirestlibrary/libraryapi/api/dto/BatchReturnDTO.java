@@ -0,0 +1,27 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReturnDTO {
+
+    public static final int MAX_ITEMS = 10000;
+
+    @Builder.Default
+    @Size(max = MAX_ITEMS)
+    private List<Long> loanIds = new ArrayList<>();
+
+    @Builder.Default
+    @Size(max = MAX_ITEMS)
+    private List<String> isbns = new ArrayList<>();
+}
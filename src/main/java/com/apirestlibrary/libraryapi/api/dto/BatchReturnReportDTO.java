@@ -0,0 +1,30 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReturnReportDTO {
+
+    private int returned;
+
+    private int missing;
+
+    // ids sem emprestimo em aberto: inexistentes ou ja devolvidos
+    @Builder.Default
+    private List<Long> missingLoanIds = new ArrayList<>();
+
+    // isbns invalidas, sem livro cadastrado ou sem emprestimo em aberto
+    @Builder.Default
+    private List<String> missingIsbns = new ArrayList<>();
+
+    private long elapsedMillis;
+}
@@ -0,0 +1,25 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import org.springframework.http.MediaType;
+
+public enum BookImportFormat {
+
+    CSV,
+
+    NDJSON;
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public static BookImportFormat of(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+            return CSV;
+        }
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(NDJSON_VALUE))) {
+            return NDJSON;
+        }
+        throw new BusinessException("Formato de importacao nao suportado: " + contentType);
+    }
+}
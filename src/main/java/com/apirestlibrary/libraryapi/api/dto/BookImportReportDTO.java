@@ -0,0 +1,25 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReportDTO {
+
+    private long imported;
+
+    private long rejected;
+
+    private long elapsedMillis;
+
+    @Builder.Default
+    private List<BookImportErrorDTO> errors = new ArrayList<>();
+}
@@ -0,0 +1,10 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+public enum CountMode {
+
+    EXACT,
+
+    NONE,
+
+    APPROXIMATE
+}
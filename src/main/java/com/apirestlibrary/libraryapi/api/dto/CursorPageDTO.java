@@ -0,0 +1,51 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    public static final int MAX_SIZE = 1000;
+
+    private List<T> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    private String nextCursor;
+
+    public static int limitOf(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Monta a pagina a partir de uma consulta que buscou uma linha a mais do que o tamanho
+     * pedido: a linha extra so indica que existe proxima pagina.
+     */
+    public static <E, T> CursorPageDTO<T> of(List<E> rows, int size,
+                                             Function<E, KeysetCursor> cursorOf,
+                                             Function<E, T> mapper) {
+        int limit = limitOf(size);
+        boolean hasNext = rows.size() > limit;
+        List<E> page = hasNext ? rows.subList(0, limit) : rows;
+
+        return CursorPageDTO.<T>builder()
+                .content(page.stream().map(mapper).collect(Collectors.toList()))
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+}
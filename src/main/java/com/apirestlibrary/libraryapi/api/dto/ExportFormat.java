@@ -0,0 +1,35 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+
+public enum ExportFormat {
+
+    CSV("text/csv", "csv"),
+
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new BusinessException("Formato de exportacao nao suportado: " + format);
+    }
+}
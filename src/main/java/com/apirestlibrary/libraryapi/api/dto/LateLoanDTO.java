@@ -0,0 +1,25 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LateLoanDTO {
+
+    private Long id;
+
+    private String customer;
+
+    private String emailCustomer;
+
+    private String isbn;
+
+    private LocalDate loanDate;
+}
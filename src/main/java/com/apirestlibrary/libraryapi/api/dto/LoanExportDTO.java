@@ -0,0 +1,29 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanExportDTO {
+
+    private Long id;
+
+    private Long bookId;
+
+    private String isbn;
+
+    private String customer;
+
+    private String emailCustomer;
+
+    private LocalDate loanDate;
+
+    private Boolean returned;
+}
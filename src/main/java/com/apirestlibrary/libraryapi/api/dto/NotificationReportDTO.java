@@ -0,0 +1,29 @@
+package com.apirestlibrary.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationReportDTO {
+
+    private int recipients;
+
+    private int batches;
+
+    private int sent;
+
+    private int failed;
+
+    private long elapsedMillis;
+
+    private double sentPerSecond;
+
+    private List<String> failedRecipients;
+}
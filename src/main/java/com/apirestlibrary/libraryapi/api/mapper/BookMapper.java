@@ -0,0 +1,21 @@
+package com.apirestlibrary.libraryapi.api.mapper;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Conversao livro/dto gerada em tempo de compilacao pelo mapstruct (BookMapperImpl),
+ * no lugar do ModelMapper que resolvia as propriedades por reflexao a cada chamada.
+ */
+@Mapper
+public interface BookMapper {
+
+    BookDTO toDTO(Book book);
+
+    // isbnKey e mantida pela entidade, nunca vem da requisicao
+    @Mapping(target = "isbnKey", ignore = true)
+    @Mapping(target = "loans", ignore = true)
+    Book toEntity(BookDTO bookDTO);
+}
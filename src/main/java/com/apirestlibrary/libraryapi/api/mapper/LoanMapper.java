@@ -0,0 +1,18 @@
+package com.apirestlibrary.libraryapi.api.mapper;
+
+import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Conversao emprestimo/dto gerada pelo mapstruct (LoanMapperImpl), com o livro aninhado em bookDTO.
+ */
+@Mapper(uses = BookMapper.class)
+public interface LoanMapper {
+
+    // isbn fica nulo na resposta, como no ModelMapper: o isbn do livro ja vai em bookDTO
+    @Mapping(target = "bookDTO", source = "book")
+    @Mapping(target = "isbn", ignore = true)
+    LoanDTO toDTO(Loan loan);
+}
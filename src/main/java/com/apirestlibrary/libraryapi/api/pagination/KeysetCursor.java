@@ -0,0 +1,41 @@
+package com.apirestlibrary.libraryapi.api.pagination;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posicao da ultima linha entregue numa paginacao por chave (sort key, id).
+ * Trafega para o cliente como um token opaco em base64.
+ */
+@Getter
+@AllArgsConstructor(staticName = "of")
+public class KeysetCursor {
+
+    private static final char SEPARATOR = '\n';
+
+    private final String key;
+
+    private final Long id;
+
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(value.substring(0, separator), Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BusinessException("Cursor invalido");
+        }
+    }
+
+    public String encode() {
+        String value = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
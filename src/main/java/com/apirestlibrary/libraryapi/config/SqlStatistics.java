@@ -0,0 +1,71 @@
+package com.apirestlibrary.libraryapi.config;
+
+/**
+ * Contadores de sql da thread atual, alimentados pelo proxy do DataSource (ver SqlStatisticsConfig).
+ * Os contadores so crescem: quem mede tira um snapshot antes e outro depois e usa a diferenca,
+ * entao medicoes aninhadas (requisicao e metodos de servico) nao interferem entre si.
+ * Sql executado em outras threads (pools de envio, jobs) nao entra na medicao de quem chamou.
+ */
+public final class SqlStatistics {
+
+    private static final int STATEMENTS = 0;
+    private static final int ROWS = 1;
+    private static final int MILLIS = 2;
+
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[3]);
+
+    private SqlStatistics() {
+    }
+
+    public static Snapshot snapshot() {
+        long[] counters = COUNTERS.get();
+        return new Snapshot(counters[STATEMENTS], counters[ROWS], counters[MILLIS]);
+    }
+
+    static void statementExecuted(long elapsedMillis, long rows) {
+        long[] counters = COUNTERS.get();
+        counters[STATEMENTS]++;
+        counters[ROWS] += rows;
+        counters[MILLIS] += elapsedMillis;
+    }
+
+    static void rowRead() {
+        COUNTERS.get()[ROWS]++;
+    }
+
+    public static final class Snapshot {
+
+        private final long statements;
+        private final long rows;
+        private final long millis;
+
+        Snapshot(long statements, long rows, long millis) {
+            this.statements = statements;
+            this.rows = rows;
+            this.millis = millis;
+        }
+
+        // diferenca entre o snapshot atual da thread e este
+        public Snapshot elapsed() {
+            Snapshot now = snapshot();
+            return new Snapshot(now.statements - statements, now.rows - rows, now.millis - millis);
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return statements + " statements, " + rows + " linhas, " + millis + " ms";
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.apirestlibrary.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sql de cada metodo publico dos servicos, incluindo o dos servicos que ele chama:
+ * log em debug e metricas sql.service.statements e sql.service.time por metodo.
+ */
+@Aspect
+@Slf4j
+public class SqlStatisticsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatisticsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("within(com.apirestlibrary.libraryapi.service..*) && @within(org.springframework.stereotype.Service)")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        SqlStatistics.Snapshot start = SqlStatistics.snapshot();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            SqlStatistics.Snapshot used = start.elapsed();
+            if (used.getStatements() > 0) {
+                String method = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                        + "." + joinPoint.getSignature().getName();
+                Tags tags = Tags.of("method", method);
+                meterRegistry.summary("sql.service.statements", tags).record(used.getStatements());
+                meterRegistry.timer("sql.service.time", tags).record(used.getMillis(), TimeUnit.MILLISECONDS);
+                log.debug("{} executou {}", method, used);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.apirestlibrary.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+
+/**
+ * Envolve o DataSource num proxy jdbc que conta statements, linhas (lidas no ResultSet ou
+ * afetadas por updates) e o tempo de banco por thread em SqlStatistics. O filtro e o aspecto
+ * usam esses contadores para medir cada requisicao e cada metodo de servico.
+ * Um executeBatch conta como um statement.
+ */
+@Configuration
+public class SqlStatisticsConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                        .afterQuery((execution, queries) ->
+                                SqlStatistics.statementExecuted(execution.getElapsedTime(), affectedRows(execution.getResult())))
+                        .proxyResultSet()
+                        .afterMethod(context -> {
+                            if (context.getTarget() instanceof ResultSet
+                                    && "next".equals(context.getMethod().getName())
+                                    && Boolean.TRUE.equals(context.getResult())) {
+                                SqlStatistics.rowRead();
+                            }
+                        })
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public SqlStatisticsFilter sqlStatisticsFilter(MeterRegistry meterRegistry,
+                                                   @Value("${application.sql-statistics.warn-statements:50}") long warnStatements) {
+        return new SqlStatisticsFilter(meterRegistry, warnStatements);
+    }
+
+    @Bean
+    public SqlStatisticsAspect sqlStatisticsAspect(MeterRegistry meterRegistry) {
+        return new SqlStatisticsAspect(meterRegistry);
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(0, ((Number) result).longValue());
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+            return rows;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.apirestlibrary.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sql de cada requisicao: log em debug (warn acima de warnStatements) e metricas
+ * sql.request.statements, sql.request.rows e sql.request.time por metodo e uri no actuator.
+ */
+@Slf4j
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final long warnStatements;
+
+    public SqlStatisticsFilter(MeterRegistry meterRegistry, long warnStatements) {
+        this.meterRegistry = meterRegistry;
+        this.warnStatements = warnStatements;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        SqlStatistics.Snapshot start = SqlStatistics.snapshot();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatistics.Snapshot used = start.elapsed();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+            Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+            meterRegistry.summary("sql.request.statements", tags).record(used.getStatements());
+            meterRegistry.summary("sql.request.rows", tags).record(used.getRows());
+            meterRegistry.timer("sql.request.time", tags).record(used.getMillis(), TimeUnit.MILLISECONDS);
+
+            if (used.getStatements() > warnStatements) {
+                log.warn("Requisicao {} {} executou {}", request.getMethod(), uri, used);
+            } else {
+                log.debug("Requisicao {} {} executou {}", request.getMethod(), uri, used);
+            }
+        }
+    }
+}
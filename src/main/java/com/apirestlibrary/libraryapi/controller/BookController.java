@@ -1,10 +1,24 @@
 package com.apirestlibrary.libraryapi.controller;
 
+import com.apirestlibrary.libraryapi.api.dto.AutocompleteField;
 import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.BookImportFormat;
+import com.apirestlibrary.libraryapi.api.dto.BookImportReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.CountMode;
+import com.apirestlibrary.libraryapi.api.dto.CursorPageDTO;
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
+import com.apirestlibrary.libraryapi.api.mapper.BookMapper;
+import com.apirestlibrary.libraryapi.api.mapper.LoanMapper;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.service.AutocompleteService;
+import com.apirestlibrary.libraryapi.service.BookImportService;
 import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.ExportService;
+import com.apirestlibrary.libraryapi.service.LoanArchiveService;
 import com.apirestlibrary.libraryapi.service.LoanService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -13,16 +27,20 @@ import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.java.Log;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,8 +52,13 @@ import java.util.stream.Collectors;
 public class BookController {
 
     private final BookService bookService;
-    private final ModelMapper mapper;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
     private final LoanService loanService;
+    private final BookImportService bookImportService;
+    private final ExportService exportService;
+    private final AutocompleteService autocompleteService;
+    private final LoanArchiveService loanArchiveService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -48,16 +71,71 @@ public class BookController {
 
         log.info("Objeto de entrada para criação na base: {}", bookDTO);
 
-        Book entity = mapper.map(bookDTO,Book.class);
+        Book entity = bookMapper.toEntity(bookDTO);
 
         entity = bookService.save(entity);
 
         log.info("Objeto de saida com sucesso de criação: {}", entity);
 
-        return mapper.map(entity,BookDTO.class);
+        return bookMapper.toDTO(entity);
 
     }
 
+    @PostMapping(value = "import", consumes = {BookImportFormat.CSV_VALUE, BookImportFormat.NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("Metodo para importacao em massa de livros via csv ou ndjson")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Importacao processada, com relatorio de linhas rejeitadas"),
+            @ApiResponse(code = 400, message = "Arquivo em formato invalido"),
+            @ApiResponse(code = 500, message = "Serviço indisponivel")
+    })
+    public BookImportReportDTO importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                           InputStream body){
+        log.info("Iniciando importacao em massa de livros no formato: {}", contentType);
+
+        return bookImportService.importBooks(body, BookImportFormat.of(contentType));
+    }
+
+    @GetMapping("export")
+    @ApiOperation("Metodo para exportar todos os livros em streaming, em ndjson ou csv")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Livros exportados com sucesso"),
+            @ApiResponse(code = 400, message = "Formato de exportacao invalido"),
+            @ApiResponse(code = 500, message = "Serviço indisponivel")
+    })
+    public void exportBooks(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "fromId", required = false) Long fromId,
+            @RequestParam(value = "toId", required = false) Long toId,
+            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        log.info("Iniciando exportacao de livros no formato {} entre os ids {} e {}", exportFormat, fromId, toId);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + exportFormat.getExtension());
+        exportService.exportBooks(response.getWriter(), exportFormat, fromId, toId);
+    }
+
+    @GetMapping("export/partitions")
+    @ApiOperation("Metodo para dividir a exportacao de livros em faixas de id para leitura em paralelo")
+    public List<ExportPartitionDTO> exportBookPartitions(@RequestParam(value = "count", defaultValue = "4") int count){
+        return exportService.bookPartitions(count);
+    }
+
+    @GetMapping("autocomplete")
+    @ApiOperation("Metodo para sugerir titulos ou autores que comecem com o prefixo informado")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Sugestoes encontradas com sucesso"),
+            @ApiResponse(code = 500, message = "Serviço indisponivel")
+    })
+    public List<String> autocomplete(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "field", defaultValue = "TITLE") AutocompleteField field,
+            @RequestParam(value = "limit", defaultValue = "10") int limit){
+        return autocompleteService.suggest(field, prefix, limit);
+    }
+
     @GetMapping("{id}")
     @ResponseStatus(HttpStatus.OK)
     @ApiOperation("Metodo para busca de livros atraves do id")
@@ -70,7 +148,7 @@ public class BookController {
         log.info("ID de entrada para buscar um livro na base: {}", id);
 
         return bookService.getById(id)
-                .map( book -> mapper.map(book,BookDTO.class))
+                .map(bookMapper::toDTO)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
@@ -104,7 +182,7 @@ public class BookController {
                 book.setAuthor(bookDTO.getAuthor() );
                 book.setTitle(bookDTO.getTitle() );
                 book = bookService.update(book);
-                return mapper.map(book,BookDTO.class);
+                return bookMapper.toDTO(book);
                 }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
     }
@@ -116,15 +194,24 @@ public class BookController {
             @ApiResponse(code = 500, message = "Serviço indisponivel"),
             @ApiResponse(code = 404, message = "Não foi encontrado")
     })
-    public Page<BookDTO> find(BookDTO bookDTO, Pageable pageable){
+    public Slice<BookDTO> find(BookDTO bookDTO, Pageable pageable,
+                               @RequestParam(value = "count", defaultValue = "EXACT") CountMode count){
         log.info("Campos de entrada para buscar livros com parametros: {}", bookDTO);
-        Book filter = mapper.map(bookDTO, Book.class);
+        Book filter = bookMapper.toEntity(bookDTO);
+
+        if (count != CountMode.EXACT) {
+            Slice<BookDTO> slice = bookService.findSlice(filter, pageable)
+                    .map(bookMapper::toDTO);
+            return count == CountMode.NONE
+                    ? slice
+                    : new PageImpl<BookDTO>(slice.getContent(), pageable, bookService.countApproximate(filter));
+        }
 
         Page<Book> response = bookService.find(filter, pageable);
 
         List<BookDTO> listResponse = response.getContent()
                 .stream()
-                .map(entity -> mapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDTO)
                 .collect(Collectors.toList());
 
         return new PageImpl<BookDTO>(listResponse,pageable, response.getTotalElements());
@@ -137,26 +224,77 @@ public class BookController {
             @ApiResponse(code = 500, message = "Serviço indisponivel"),
             @ApiResponse(code = 404, message = "Não foi encontrado")
     })
-    public Page<LoanDTO> bookFetchByLoans(@PathVariable Long id, Pageable pageable){
+    public Slice<LoanDTO> bookFetchByLoans(@PathVariable Long id, Pageable pageable,
+                                           @RequestParam(value = "count", defaultValue = "EXACT") CountMode count,
+                                           @RequestParam(value = "history", defaultValue = "false") boolean history){
         log.info("ID de entrada para buscar livros com emprestimos: {}", id);
 
         Book book = bookService.getById(id).orElseThrow(
                 () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "id nao encontrado na base de dados"));
 
+        // com history os emprestimos arquivados entram depois dos atuais, sempre com contagem exata
+        if (history) {
+            return loanArchiveService.getLoansByBookWithHistory(book, pageable).map(loanMapper::toDTO);
+        }
+
+        if (count != CountMode.EXACT) {
+            Slice<LoanDTO> slice = loanService.getLoansByBookSlice(book, pageable).map(loanMapper::toDTO);
+            return count == CountMode.NONE
+                    ? slice
+                    : new PageImpl<LoanDTO>(slice.getContent(), pageable, loanService.countLoansByBookApproximate(book));
+        }
+
         Page<Loan> response = loanService.getLoansByBook(book, pageable);
 
         List<LoanDTO> loanDTOList = response.getContent()
                 .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = mapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = mapper.map(loan, LoanDTO.class);
-                    loanDTO.setBookDTO(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
         return new PageImpl<LoanDTO>(loanDTOList, pageable, response.getTotalElements());
     }
 
+    @GetMapping(params = "after")
+    @ApiOperation("Metodo para buscar livros atraves dos parametros paginando por cursor")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Lista de livros atraves de parametros encontrados com sucesso"),
+            @ApiResponse(code = 400, message = "Cursor invalido"),
+            @ApiResponse(code = 500, message = "Serviço indisponivel")
+    })
+    public CursorPageDTO<BookDTO> findAfter(BookDTO bookDTO,
+                                            @RequestParam("after") String after,
+                                            @RequestParam(value = "size", defaultValue = "20") int size){
+        log.info("Campos de entrada para buscar livros por cursor: {}, {}", bookDTO, after);
+        Book filter = bookMapper.toEntity(bookDTO);
+
+        List<Book> response = bookService.findAfter(filter, KeysetCursor.decode(after), CursorPageDTO.limitOf(size) + 1);
 
+        return CursorPageDTO.of(response, size,
+                book -> KeysetCursor.of(book.getTitle(), book.getId()),
+                bookMapper::toDTO);
+    }
+
+    @GetMapping(value = "{id}/loans", params = "after")
+    @ApiOperation("Metodo para buscar emprestimos de um livro paginando por cursor")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Lista de livros emprestados encontrado com sucesso"),
+            @ApiResponse(code = 400, message = "Cursor invalido"),
+            @ApiResponse(code = 500, message = "Serviço indisponivel"),
+            @ApiResponse(code = 404, message = "Não foi encontrado")
+    })
+    public CursorPageDTO<LoanDTO> bookFetchByLoansAfter(@PathVariable Long id,
+                                                        @RequestParam("after") String after,
+                                                        @RequestParam(value = "size", defaultValue = "20") int size){
+        log.info("ID de entrada para buscar emprestimos por cursor: {}, {}", id, after);
+
+        Book book = bookService.getById(id).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "id nao encontrado na base de dados"));
+
+        List<Loan> response = loanService.getLoansByBookAfter(
+                book, KeysetCursor.decode(after), CursorPageDTO.limitOf(size) + 1);
+
+        return CursorPageDTO.of(response, size,
+                loan -> KeysetCursor.of(loan.getLoanDate().toString(), loan.getId()),
+                loanMapper::toDTO);
+    }
 
 }
@@ -1,23 +1,39 @@
 package com.apirestlibrary.libraryapi.controller;
 
-import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.CountMode;
+import com.apirestlibrary.libraryapi.api.dto.CursorPageDTO;
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
+import com.apirestlibrary.libraryapi.api.dto.OverdueCountDTO;
 import com.apirestlibrary.libraryapi.api.dto.ReturnedLoanDTO;
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.mapper.LoanMapper;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
 import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.ExportService;
 import com.apirestlibrary.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,7 +45,8 @@ public class LoanController {
 
     private final LoanService service;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ExportService exportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -48,6 +65,12 @@ public class LoanController {
         return entity.getId();
     }
 
+    @PostMapping("batch")
+    @ResponseStatus(HttpStatus.OK)
+    public BatchLoanReportDTO createBatch(@RequestBody @Valid BatchLoanDTO dto) {
+        return service.loanAll(dto.getIsbns(), dto.getCustomer(), dto.getEmailCustomer());
+    }
+
     @PutMapping("{id}")
     public void returnBook(
             @PathVariable Long id,
@@ -57,21 +80,69 @@ public class LoanController {
         service.update(loan);
     }
 
+    @PostMapping("returns")
+    @ResponseStatus(HttpStatus.OK)
+    public BatchReturnReportDTO returnBooks(@RequestBody @Valid BatchReturnDTO dto) {
+        if (CollectionUtils.isEmpty(dto.getLoanIds()) && CollectionUtils.isEmpty(dto.getIsbns())) {
+            throw new BusinessException("Informe os ids dos emprestimos ou as isbns");
+        }
+        return service.returnAll(dto.getLoanIds(), dto.getIsbns());
+    }
+
+    @GetMapping("overdue/count")
+    public OverdueCountDTO countOverdue() {
+        return OverdueCountDTO.builder()
+                .date(LocalDate.now())
+                .overdue(service.countLateLoans())
+                .build();
+    }
+
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest) {
+    public Slice<LoanDTO> find(
+            LoanFilterDTO dto,
+            Pageable pageRequest,
+            @RequestParam(value = "count", defaultValue = "EXACT") CountMode count) {
+        if (count != CountMode.EXACT) {
+            Slice<LoanDTO> slice = service.findSlice(dto, pageRequest).map(loanMapper::toDTO);
+            return count == CountMode.NONE
+                    ? slice
+                    : new PageImpl<LoanDTO>(slice.getContent(), pageRequest, service.countApproximate(dto));
+        }
         Page<Loan> result = service.find(dto, pageRequest);
         List<LoanDTO> loans = result
                 .getContent()
                 .stream()
-                .map(entity -> {
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
+    }
+
+    @GetMapping(params = "after")
+    public CursorPageDTO<LoanDTO> findAfter(
+            LoanFilterDTO dto,
+            @RequestParam("after") String after,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        List<Loan> result = service.findAfter(dto, KeysetCursor.decode(after), CursorPageDTO.limitOf(size) + 1);
+        return CursorPageDTO.of(result, size,
+                loan -> KeysetCursor.of(loan.getLoanDate().toString(), loan.getId()),
+                loanMapper::toDTO);
+    }
 
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBookDTO(bookDTO);
-                    return loanDTO;
+    @GetMapping("export")
+    public void exportLoans(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "fromId", required = false) Long fromId,
+            @RequestParam(value = "toId", required = false) Long toId,
+            HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=loans." + exportFormat.getExtension());
+        exportService.exportLoans(response.getWriter(), exportFormat, fromId, toId);
+    }
 
-                }).collect(Collectors.toList());
-        return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
+    @GetMapping("export/partitions")
+    public List<ExportPartitionDTO> exportLoanPartitions(@RequestParam(value = "count", defaultValue = "4") int count) {
+        return exportService.loanPartitions(count);
     }
-}
\ No newline at end of file
+}
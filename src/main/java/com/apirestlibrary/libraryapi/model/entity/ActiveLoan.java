@@ -0,0 +1,50 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+
+/**
+ * Emprestimo em aberto de cada livro: a linha existe enquanto o livro esta emprestado.
+ * Fica fora do cache de segundo nivel de proposito; reservar e liberar livros nao invalida
+ * a regiao "book" nem as consultas em cache sobre a tabela book.
+ * O id e o do livro, entao o save nao sabe sozinho que a reserva e nova: o Persistable evita
+ * o select do merge antes de cada insert.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "active_loan", indexes = @Index(name = "ux_active_loan_loan", columnList = "loan_id", unique = true))
+public class ActiveLoan implements Persistable<Long> {
+
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    private transient boolean persisted;
+
+    @Override
+    public Long getId() {
+        return bookId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
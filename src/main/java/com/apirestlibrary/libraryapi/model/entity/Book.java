@@ -3,7 +3,12 @@ package com.apirestlibrary.libraryapi.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
@@ -13,12 +18,22 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = Book.ISBN_UNIQUE_INDEX, columnList = "isbn_key", unique = true),
+        // ordem da paginacao por cursor (findByTitleKeyset*)
+        @Index(name = "ix_book_title_id", columnList = "title, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
+@BatchSize(size = 50)
 public class Book {
 
+    public static final String ISBN_UNIQUE_INDEX = "ux_book_isbn";
+
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -30,6 +45,23 @@ public class Book {
     @Column
     private String isbn;
 
+    // isbn-13 numerica derivada da isbn (ver Isbn), garantida unica pelo indice ux_book_isbn
+    @Column(name = "isbn_key", nullable = false)
+    private long isbnKey;
+
+    // fora do toString/equals/hashCode do lombok, que carregariam a colecao lazy
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "book")
     private List<Loan> loans;
+
+    @PrePersist
+    @PreUpdate
+    void deriveIsbnKey() {
+        long key = Isbn.keyOf(this.isbn);
+        if (key == Isbn.NO_KEY) {
+            throw new IllegalArgumentException("Isbn invalida: " + this.isbn);
+        }
+        this.isbnKey = key;
+    }
 }
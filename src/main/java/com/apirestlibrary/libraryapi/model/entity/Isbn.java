@@ -0,0 +1,87 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+import java.util.Locale;
+
+/**
+ * Normalizacao e validacao de isbn. Toda isbn valida vira uma chave numerica unica:
+ * isbn-13 e usada como esta, isbn-10 e convertida para a isbn-13 equivalente (prefixo 978).
+ * Codigos numericos curtos (ate 9 digitos), usados como codigo interno do acervo,
+ * continuam aceitos; a chave leva o tamanho do codigo na frente do valor, para que "1", "01"
+ * e "001" nao colidam. Fica abaixo de 10^10, longe das chaves de isbn-13.
+ */
+public final class Isbn {
+
+    public static final long NO_KEY = -1L;
+
+    private static final int MAX_INTERNAL_CODE_LENGTH = 9;
+    private static final long INTERNAL_CODE_LENGTH_FACTOR = 1_000_000_000L;
+
+    private Isbn() {
+    }
+
+    public static String normalize(String isbn) {
+        return isbn == null ? null : isbn.replace("-", "").replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    public static boolean isValid(String isbn) {
+        return keyOf(isbn) != NO_KEY;
+    }
+
+    public static long keyOf(String isbn) {
+        String value = normalize(isbn);
+        if (value == null || value.isEmpty()) {
+            return NO_KEY;
+        }
+        if (value.length() == 10) {
+            return isValidIsbn10(value) ? Long.parseLong(toIsbn13("978" + value.substring(0, 9))) : NO_KEY;
+        }
+        if (!isDigits(value)) {
+            return NO_KEY;
+        }
+        if (value.length() == 13) {
+            return (value.startsWith("978") || value.startsWith("979")) && checkDigit13(value) == value.charAt(12) - '0'
+                    ? Long.parseLong(value)
+                    : NO_KEY;
+        }
+        return value.length() <= MAX_INTERNAL_CODE_LENGTH
+                ? value.length() * INTERNAL_CODE_LENGTH_FACTOR + Long.parseLong(value)
+                : NO_KEY;
+    }
+
+    private static boolean isValidIsbn10(String value) {
+        if (!isDigits(value.substring(0, 9))) {
+            return false;
+        }
+        char last = value.charAt(9);
+        if (last != 'X' && !Character.isDigit(last)) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (10 - i) * (value.charAt(i) - '0');
+        }
+        sum += last == 'X' ? 10 : last - '0';
+        return sum % 11 == 0;
+    }
+
+    private static String toIsbn13(String first12) {
+        return first12 + checkDigit13(first12);
+    }
+
+    private static int checkDigit13(String value) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (value.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Emprestimo devolvido movido da tabela loan pelo arquivamento. Mantem o id original.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_archive", indexes = @Index(name = "ix_loan_archive_customer", columnList = "customer"))
+public class LoanArchive {
+
+    @Id
+    private Long id;
+
+    @JoinColumn
+    @ManyToOne
+    private Book book;
+
+    @Column
+    private String customer;
+
+    @Column
+    private String emailCustomer;
+
+    @Column
+    private LocalDate loanDate;
+
+    @Column
+    private Boolean returned;
+
+    @Column
+    private LocalDateTime archivedAt;
+
+    public Loan toLoan() {
+        return Loan.builder()
+                .id(id)
+                .book(book)
+                .customer(customer)
+                .emailCustomer(emailCustomer)
+                .loanDate(loanDate)
+                .returned(returned)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+public enum NotificationType {
+    LOAN_CREATED,
+    LOAN_RETURNED,
+    LOAN_LATE
+}
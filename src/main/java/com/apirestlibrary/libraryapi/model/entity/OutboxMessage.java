@@ -0,0 +1,57 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Aviso pendente de envio, gravado na mesma transacao da mudanca do emprestimo.
+ * A messageKey identifica o aviso (tipo, emprestimo e, para atrasos, o dia): gravar o mesmo
+ * aviso duas vezes nao gera um segundo envio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_outbox_message_key", columnList = "messageKey", unique = true),
+        @Index(name = "ix_outbox_pending", columnList = "sentAt, id")
+})
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String messageKey;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+
+    @Column
+    private Long loanId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime sentAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    public static String keyOf(NotificationType type, Long loanId) {
+        return type + ":" + loanId;
+    }
+}
@@ -0,0 +1,81 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.ActiveLoan;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public interface ActiveLoanRepository extends JpaRepository<ActiveLoan, Long> {
+
+    // select ... for update so na linha do livro: serializa as reservas do mesmo livro sem gravar nela
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select b from Book b where b.id = :bookId")
+    Optional<Book> lockBook(@Param("bookId") Long bookId);
+
+    // um select ... for update para as linhas de todos os livros do lote, em ordem de id para que
+    // lotes com livros em comum esperem um pelo outro em vez de travarem em deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select b from Book b where b.id in :bookIds order by b.id")
+    List<Book> lockBooks(@Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Trava os livros e devolve os que existem e estao livres, com duas consultas qualquer que
+     * seja o tamanho do lote. As reservas dos livros devolvidos ficam para o saveAll.
+     */
+    default Set<Long> lockAvailable(Collection<Long> bookIds) {
+        Set<Long> available = lockBooks(bookIds).stream().map(Book::getId).collect(Collectors.toCollection(HashSet::new));
+        if (!available.isEmpty()) {
+            available.removeAll(findIdsOnLoan(available));
+        }
+        return available;
+    }
+
+    /**
+     * Reserva o livro para o emprestimo; devolve 1 se o livro estava livre ou ja era deste
+     * emprestimo e 0 se esta emprestado a outro (ou nao existe).
+     */
+    default int reserve(Long bookId, Long loanId) {
+        if (!lockBook(bookId).isPresent()) {
+            return 0;
+        }
+        Optional<ActiveLoan> active = findById(bookId);
+        if (active.isPresent()) {
+            return active.get().getLoanId().equals(loanId) ? 1 : 0;
+        }
+        save(ActiveLoan.builder().bookId(bookId).loanId(loanId).build());
+        return 1;
+    }
+
+    // remove pela entidade (e nao por delete em massa) para nao deixar a reserva antiga na sessao;
+    // o flush executa o delete antes de uma nova reserva do livro, ja que o hibernate grava os inserts primeiro
+    default int release(Long bookId, Long loanId) {
+        Optional<ActiveLoan> active = findById(bookId).filter(found -> found.getLoanId().equals(loanId));
+        active.ifPresent(this::delete);
+        flush();
+        return active.isPresent() ? 1 : 0;
+    }
+
+    default int releaseAll(Collection<Long> loanIds) {
+        List<ActiveLoan> active = findByLoanIdIn(loanIds);
+        deleteAll(active);
+        flush();
+        return active.size();
+    }
+
+    List<ActiveLoan> findByLoanIdIn(Collection<Long> loanIds);
+
+    @Query(value = "select a.bookId from ActiveLoan a where a.bookId in :bookIds")
+    List<Long> findIdsOnLoan(@Param("bookIds") Collection<Long> bookIds);
+
+    List<ActiveLoan> findByBookIdIn(Collection<Long> bookIds);
+}
@@ -1,13 +1,65 @@
 package com.apirestlibrary.libraryapi.model.repository;
 
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository <Book, Long> {
+public interface BookRepository extends JpaRepository <Book, Long>, BookSearchRepository {
 
-    boolean existsByIsbn(String isbn);
+    boolean existsByIsbnKey(long isbnKey);
 
-    Optional<Book> findByIsbn(String isbn);
+    default boolean existsByIsbn(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        return key != Isbn.NO_KEY && existsByIsbnKey(key);
+    }
+
+    List<Book> findByIsbnKeyIn(Collection<Long> isbnKeys);
+
+    @Query(value = "select b.isbnKey from Book b where b.isbnKey in :isbnKeys")
+    List<Long> findExistingIsbnKeys(@Param("isbnKeys") Collection<Long> isbnKeys);
+
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+    Optional<Book> findByIsbnKey(long isbnKey);
+
+    default Optional<Book> findByIsbn(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        return key == Isbn.NO_KEY ? Optional.empty() : findByIsbnKey(key);
+    }
+
+    Slice<Book> findAllBy(Pageable pageable);
+
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.annotations.QueryHints.FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_MODE, value = "IGNORE")
+    })
+    @Query(value = "select b from Book b where b.id >= :fromId and b.id < :toId order by b.id")
+    Stream<Book> streamByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query(value = "select min(b.id) from Book b")
+    Long findMinId();
+
+    @Query(value = "select max(b.id) from Book b")
+    Long findMaxId();
+
+    // livros sem titulo nao entram na paginacao por cursor (o titulo e obrigatorio no BookDTO)
+    @Query(value = "select b from Book b where b.title is not null order by b.title, b.id")
+    List<Book> findByTitleKeyset(Pageable pageable);
+
+    @Query(value = "select b from Book b where b.title > :title or (b.title = :title and b.id > :id) " +
+            "order by b.title, b.id")
+    List<Book> findByTitleKeysetAfter(@Param("title") String title, @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,20 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Consultas por Specification que o JpaSpecificationExecutor nao oferece: fatias e
+ * listas limitadas, sem a consulta de contagem de uma Page.
+ */
+public interface BookSearchRepository {
+
+    Slice<Book> findSlice(Specification<Book> specification, Pageable pageable);
+
+    List<Book> findFirst(Specification<Book> specification, Sort sort, int limit);
+}
@@ -0,0 +1,30 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filtros de livro para as consultas que o indice em memoria atende enquanto nao esta carregado.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    // mesmo predicado do findAll(Example), para combinar com o cursor e com fatias sem contagem
+    public static Specification<Book> matching(Example<Book> example) {
+        return (root, query, builder) -> QueryByExamplePredicateBuilder.getPredicate(root, builder, example);
+    }
+
+    public static Specification<Book> hasTitle() {
+        return (root, query, builder) -> builder.isNotNull(root.get("title"));
+    }
+
+    public static Specification<Book> titleAfter(String title, Long id) {
+        return (root, query, builder) -> builder.or(
+                builder.greaterThan(root.get("title"), title),
+                builder.and(builder.equal(root.get("title"), title), builder.greaterThan(root.get("id"), id)));
+    }
+}
@@ -0,0 +1,21 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.LoanArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long>, LoanArchiveSearchRepository {
+
+    @Modifying
+    @Query(value = "insert into loan_archive (id, book_id, customer, email_customer, loan_date, returned, archived_at) " +
+            "select id, book_id, customer, email_customer, loan_date, returned, current_timestamp " +
+            "from loan where id in (:ids)", nativeQuery = true)
+    int archive(@Param("ids") Collection<Long> ids);
+
+    long countByBook(Book book);
+}
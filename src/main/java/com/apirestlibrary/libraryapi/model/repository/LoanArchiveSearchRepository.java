@@ -0,0 +1,16 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.LoanArchive;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Leitura do historico a partir de um offset qualquer, para continuar a pagina que comecou
+ * na tabela loan.
+ */
+public interface LoanArchiveSearchRepository {
+
+    List<LoanArchive> findByBook(Book book, Sort sort, long offset, int limit);
+}
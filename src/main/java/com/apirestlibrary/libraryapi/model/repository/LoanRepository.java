@@ -1,33 +1,158 @@
 package com.apirestlibrary.libraryapi.model.repository;
 
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface LoanRepository extends JpaRepository <Loan, Long> {
+public interface LoanRepository extends JpaRepository <Loan, Long>, JpaSpecificationExecutor<Loan>,
+        LoanSearchRepository {
+
+    // o livro vem no mesmo select, sem uma consulta por livro ao montar o LoanDTO
+    @Override
+    @EntityGraph(attributePaths = "book")
+    Page<Loan> findAll(Specification<Loan> specification, Pageable pageable);
 
     @Query(value = " select case when (count(l.id) > 0 ) then true else false end " +
             "from Loan l where l.book = :book and ( l.returned is null or l.returned is false ) ")
     boolean existsBookAndNotReturned( @Param("book") Book book);
 
-    @Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or" +
-            " l.customer = :customer")
+    /**
+     * Ids dos emprestimos do livro ou do cliente como UNION de duas buscas por indice
+     * (ux_book_isbn + fk de book e ix_loan_customer); um OR entre as duas colunas viraria
+     * uma varredura da tabela. Os livros das linhas retornadas sao lidos num unico select
+     * pelo @BatchSize de Book.
+     */
+    String ISBN_OR_CUSTOMER_IDS = "select l1.id from loan l1 join book b on b.id = l1.book_id " +
+            "where b.isbn_key = :isbnKey " +
+            "union select l2.id from loan l2 where l2.customer = :customer";
+
+    @Query(value = "select l.* from loan l where l.id in (" + ISBN_OR_CUSTOMER_IDS + ")",
+            countQuery = "select count(*) from (" + ISBN_OR_CUSTOMER_IDS + ") ids",
+            nativeQuery = true)
     Page<Loan> findByBookIsbnOrCustomer(
-            @Param("isbn") String isbn,
+            @Param("isbnKey") long isbnKey,
+            @Param("customer") String customer,
+            Pageable pageable);
+
+    @Query(value = "select l.* from loan l where l.id in (" + ISBN_OR_CUSTOMER_IDS + ")", nativeQuery = true)
+    Slice<Loan> findSliceByBookIsbnOrCustomer(
+            @Param("isbnKey") long isbnKey,
             @Param("customer") String customer,
             Pageable pageable);
 
+    @Query(value = "select count(*) from (" + ISBN_OR_CUSTOMER_IDS + ") ids", nativeQuery = true)
+    long countByBookIsbnOrCustomer(@Param("isbnKey") long isbnKey, @Param("customer") String customer);
+
+    @Query(value = "select l.* from loan l where l.id in (" + ISBN_OR_CUSTOMER_IDS + ") " +
+            "and l.loan_date is not null order by l.loan_date, l.id", nativeQuery = true)
+    List<Loan> findByBookIsbnOrCustomerKeyset(
+            @Param("isbnKey") long isbnKey,
+            @Param("customer") String customer,
+            Pageable pageable);
+
+    @Query(value = "select l.* from loan l where l.id in (" + ISBN_OR_CUSTOMER_IDS + ") " +
+            "and (l.loan_date > :loanDate or (l.loan_date = :loanDate and l.id > :id)) order by l.loan_date, l.id",
+            nativeQuery = true)
+    List<Loan> findByBookIsbnOrCustomerKeysetAfter(
+            @Param("isbnKey") long isbnKey,
+            @Param("customer") String customer,
+            @Param("loanDate") LocalDate loanDate,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 
+    @EntityGraph(attributePaths = "book")
+    Slice<Loan> findSliceByBook(Book book, Pageable pageable);
+
+    long countByBook(Book book);
+
+    @EntityGraph(attributePaths = "book")
+    @Query(value = "select l from Loan l where l.book = :book and l.loanDate is not null order by l.loanDate, l.id")
+    List<Loan> findByBookKeyset(@Param("book") Book book, Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
+    @Query(value = "select l from Loan l where l.book = :book " +
+            "and (l.loanDate > :loanDate or (l.loanDate = :loanDate and l.id > :id)) order by l.loanDate, l.id")
+    List<Loan> findByBookKeysetAfter(
+            @Param("book") Book book,
+            @Param("loanDate") LocalDate loanDate,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.annotations.QueryHints.FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.READ_ONLY, value = "true"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_MODE, value = "IGNORE")
+    })
+    @Query(value = "select l from Loan l left join fetch l.book where l.id >= :fromId and l.id < :toId order by l.id")
+    Stream<Loan> streamByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query(value = "select min(l.id) from Loan l")
+    Long findMinId();
+
+    @Query(value = "select max(l.id) from Loan l")
+    Long findMaxId();
+
     @Query(value = "select l from Loan l where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false)")
     List<Loan> findByLoansDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAge);
+
+    // trava as linhas do bloco ate o fim da transacao do arquivamento
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select l.id from Loan l where l.returned = true and l.loanDate < :before and l.id > :lastId order by l.id")
+    List<Long> findArchivableIds(@Param("before") LocalDate before, @Param("lastId") long lastId, Pageable pageable);
+
+    @Modifying
+    @Query(value = "delete from Loan l where l.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // trava os emprestimos em aberto do bloco ate o fim da transacao da devolucao
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select l from Loan l where l.id in :ids and (l.returned is null or l.returned = false)")
+    List<Loan> findOpenForReturn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select l.id as id, l.loanDate as loanDate from Loan l " +
+            "where l.id > :lastId and (l.returned is null or l.returned = false) order by l.id")
+    List<OpenLoan> findOpenAfter(@Param("lastId") long lastId, Pageable pageable);
+
+    @Query(value = "select count(l) from Loan l where l.loanDate <= :loanDate and (l.returned is null or l.returned = false)")
+    long countLateLoans(@Param("loanDate") LocalDate loanDate);
+
+    // projecao dos emprestimos atrasados, lida em blocos pelo id a partir do ultimo id lido
+    @Query(value = "select new com.apirestlibrary.libraryapi.api.dto.LateLoanDTO(l.id, l.customer, l.emailCustomer, b.isbn, l.loanDate) " +
+            "from Loan l join l.book b where l.id > :lastId and l.loanDate <= :loanDate " +
+            "and (l.returned is null or l.returned is false) order by l.id")
+    List<LateLoanDTO> findLateLoansAfter(
+            @Param("loanDate") LocalDate loanDate,
+            @Param("lastId") long lastId,
+            Pageable pageable);
+
+    interface OpenLoan {
+
+        Long getId();
+
+        LocalDate getLoanDate();
+    }
 }
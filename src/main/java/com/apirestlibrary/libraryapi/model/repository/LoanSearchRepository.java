@@ -0,0 +1,20 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Consultas por Specification que o JpaSpecificationExecutor nao oferece: fatias e
+ * listas limitadas, sem a consulta de contagem de uma Page.
+ */
+public interface LoanSearchRepository {
+
+    Slice<Loan> findSlice(Specification<Loan> specification, Pageable pageable);
+
+    List<Loan> findFirst(Specification<Loan> specification, Sort sort, int limit);
+}
@@ -0,0 +1,33 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros de emprestimo; cada um e um predicado simples sobre uma coluna indexada.
+ */
+public final class LoanSpecifications {
+
+    private LoanSpecifications() {
+    }
+
+    public static Specification<Loan> bookIsbnKey(long isbnKey) {
+        return (root, query, builder) -> builder.equal(root.get("book").get("isbnKey"), isbnKey);
+    }
+
+    public static Specification<Loan> customer(String customer) {
+        return (root, query, builder) -> builder.equal(root.get("customer"), customer);
+    }
+
+    public static Specification<Loan> hasLoanDate() {
+        return (root, query, builder) -> builder.isNotNull(root.get("loanDate"));
+    }
+
+    public static Specification<Loan> loanDateAfter(LocalDate loanDate, Long id) {
+        return (root, query, builder) -> builder.or(
+                builder.greaterThan(root.get("loanDate"), loanDate),
+                builder.and(builder.equal(root.get("loanDate"), loanDate), builder.greaterThan(root.get("id"), id)));
+    }
+}
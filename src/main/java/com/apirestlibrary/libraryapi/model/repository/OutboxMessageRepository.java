@@ -0,0 +1,59 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.entity.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    @Query(value = "select m.messageKey from OutboxMessage m where m.messageKey in :keys")
+    List<String> findExistingKeys(@Param("keys") Collection<String> keys);
+
+    @Query(value = "select m from OutboxMessage m where m.sentAt is null and m.attempts < :maxAttempts " +
+            "and m.id > :lastId order by m.id")
+    List<OutboxMessage> findPendingAfter(
+            @Param("lastId") long lastId,
+            @Param("maxAttempts") int maxAttempts,
+            Pageable pageable);
+
+    @Query(value = "select count(m.id) from OutboxMessage m where m.sentAt is null and m.attempts < :maxAttempts")
+    long countPending(@Param("maxAttempts") int maxAttempts);
+
+    @Query(value = "select min(m.createdAt) from OutboxMessage m where m.sentAt is null and m.attempts < :maxAttempts")
+    LocalDateTime findOldestPendingCreatedAt(@Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update OutboxMessage m set m.sentAt = :sentAt, m.attempts = m.attempts + 1 where m.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update OutboxMessage m set m.attempts = m.attempts + 1 where m.id in :ids")
+    int markFailed(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select m.id from OutboxMessage m where m.sentAt < :before order by m.id")
+    List<Long> findSentBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from OutboxMessage m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from OutboxMessage m where m.loanId = :loanId and m.type = :type and m.sentAt is null")
+    int deletePending(@Param("loanId") Long loanId, @Param("type") NotificationType type);
+
+    @Modifying
+    @Query(value = "delete from OutboxMessage m where m.loanId in :loanIds and m.type = :type and m.sentAt is null")
+    int deletePendingIn(@Param("loanIds") Collection<Long> loanIds, @Param("type") NotificationType type);
+}
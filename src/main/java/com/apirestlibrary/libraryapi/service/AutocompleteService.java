@@ -0,0 +1,17 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.AutocompleteField;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+
+import java.util.List;
+
+public interface AutocompleteService {
+
+    void index(Book book);
+
+    void remove(Long id);
+
+    List<String> suggest(AutocompleteField field, String prefix, int limit);
+
+    void rebuild();
+}
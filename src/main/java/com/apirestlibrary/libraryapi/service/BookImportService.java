@@ -0,0 +1,11 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.BookImportFormat;
+import com.apirestlibrary.libraryapi.api.dto.BookImportReportDTO;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    BookImportReportDTO importBooks(InputStream input, BookImportFormat format);
+}
@@ -0,0 +1,23 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface BookIndexService {
+
+    void index(Book book);
+
+    void remove(Long id);
+
+    Page<Long> search(Book filter, Pageable pageable);
+
+    List<Long> searchAfter(Book filter, KeysetCursor after, int limit);
+
+    void rebuild();
+
+    boolean isReady();
+}
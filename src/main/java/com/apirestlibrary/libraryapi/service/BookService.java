@@ -1,9 +1,13 @@
 package com.apirestlibrary.libraryapi.service;
 
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -17,5 +21,13 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageableRequest);
 
+    Slice<Book> findSlice(Book filter, Pageable pageableRequest);
+
+    long countApproximate(Book filter);
+
+    List<Book> findAfter(Book filter, KeysetCursor after, int limit);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> getBooksByIsbns(Collection<String> isbns);
 }
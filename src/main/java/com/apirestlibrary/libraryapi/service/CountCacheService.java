@@ -0,0 +1,10 @@
+package com.apirestlibrary.libraryapi.service;
+
+import java.util.function.LongSupplier;
+
+public interface CountCacheService {
+
+    long count(String region, String key, LongSupplier counter);
+
+    void invalidate(String region);
+}
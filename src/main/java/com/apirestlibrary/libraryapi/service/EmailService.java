@@ -4,5 +4,5 @@ import java.util.List;
 
 public interface EmailService {
 
-    void sendEmailsList(String messageMail, List<String> emailsList);
+    void sendEmails(String subject, String messageMail, List<String> emails);
 }
@@ -0,0 +1,18 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
+
+import java.io.Writer;
+import java.util.List;
+
+public interface ExportService {
+
+    long exportBooks(Writer writer, ExportFormat format, Long fromId, Long toId);
+
+    long exportLoans(Writer writer, ExportFormat format, Long fromId, Long toId);
+
+    List<ExportPartitionDTO> bookPartitions(int count);
+
+    List<ExportPartitionDTO> loanPartitions(int count);
+}
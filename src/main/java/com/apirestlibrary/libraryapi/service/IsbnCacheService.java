@@ -0,0 +1,18 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+
+import java.util.Optional;
+
+public interface IsbnCacheService {
+
+    Optional<Long> getId(String isbn);
+
+    boolean contains(String isbn);
+
+    void put(Book book);
+
+    void invalidate(String isbn);
+
+    void invalidateBook(Long bookId);
+}
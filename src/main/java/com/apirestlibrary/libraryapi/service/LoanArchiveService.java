@@ -0,0 +1,13 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface LoanArchiveService {
+
+    int archive();
+
+    Page<Loan> getLoansByBookWithHistory(Book book, Pageable pageable);
+}
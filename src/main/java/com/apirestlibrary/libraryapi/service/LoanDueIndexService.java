@@ -0,0 +1,18 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+
+import java.time.LocalDate;
+
+public interface LoanDueIndexService {
+
+    void add(Loan loan);
+
+    void remove(Long loanId);
+
+    long countOverdue(LocalDate today);
+
+    void rebuild();
+
+    boolean isReady();
+}
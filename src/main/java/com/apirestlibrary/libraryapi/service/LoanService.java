@@ -1,25 +1,53 @@
 package com.apirestlibrary.libraryapi.service;
 
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
 
      Loan save(Loan loan);
 
+    List<Loan> saveAll(List<Loan> loans);
+
+    BatchLoanReportDTO loanAll(List<String> isbns, String customer, String emailCustomer);
+
     Optional<Loan> getById(Long id);
 
     Loan update(Loan loan);
 
+    BatchReturnReportDTO returnAll(List<Long> loanIds, List<String> isbns);
+
     Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable);
 
+    Slice<Loan> findSlice(LoanFilterDTO loanFilterDTO, Pageable pageable);
+
+    long countApproximate(LoanFilterDTO loanFilterDTO);
+
+    List<Loan> findAfter(LoanFilterDTO loanFilterDTO, KeysetCursor after, int limit);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Slice<Loan> getLoansByBookSlice(Book book, Pageable pageable);
+
+    long countLoansByBookApproximate(Book book);
+
+    List<Loan> getLoansByBookAfter(Book book, KeysetCursor after, int limit);
+
+    long countLateLoans();
+
     List<Loan> getAllLateLoans();
+
+    void forEachLateLoansChunk(int chunkSize, Consumer<List<LateLoanDTO>> action);
 }
@@ -0,0 +1,11 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+public interface NotificationService {
+
+    CompletableFuture<NotificationReportDTO> dispatch(String subject, String messageMail, Collection<String> emails);
+}
@@ -0,0 +1,25 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxService {
+
+    void enqueue(NotificationType type, Loan loan);
+
+    void enqueueAll(NotificationType type, List<Loan> loans);
+
+    void enqueueLateLoans(List<LateLoanDTO> lateLoans);
+
+    void discardPending(NotificationType type, Loan loan);
+
+    void discardPending(NotificationType type, Collection<Long> loanIds);
+
+    int relay();
+
+    int purgeSent();
+}
@@ -1,39 +1,50 @@
 package com.apirestlibrary.libraryapi.service;
 
-import com.apirestlibrary.libraryapi.model.entity.Loan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @Service
 @RequiredArgsConstructor
 public class ScheduleService {
 
     private final static String CRON_LOANS_LATER = "0 0 0 1/1 * ?";
 
-    @Value("${application.mail-lateloans-message}")
-    private String messageMail;
+    @Value("${application.late-loans.chunk-size:500}")
+    private int chunkSize;
 
 
     private final LoanService loanService;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
+    private final LoanArchiveService loanArchiveService;
 
+    // grava os avisos de atraso no outbox, bloco a bloco; o envio fica com o relay
     @Scheduled(cron = CRON_LOANS_LATER)
     public void sendMailToLoansLater(){
 
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
+        loanService.forEachLateLoansChunk(chunkSize, outboxService::enqueueLateLoans);
+
+    }
 
-        List<String> emailsList = allLateLoans.stream()
-                .map(loan -> loan.getEmailCustomer())
-                .collect(Collectors.toList());
+    @Scheduled(fixedDelayString = "${application.outbox.relay-delay-millis:5000}")
+    public void relayOutbox(){
 
+        outboxService.relay();
+
+    }
+
+    @Scheduled(cron = "${application.loan-archive.cron:0 30 1 * * ?}")
+    public void archiveLoans(){
+
+        loanArchiveService.archive();
+
+    }
 
-        emailService.sendEmailsList(messageMail,emailsList);
+    @Scheduled(cron = "${application.outbox.purge-cron:0 0 2 * * ?}")
+    public void purgeOutbox(){
 
+        outboxService.purgeSent();
 
     }
 }
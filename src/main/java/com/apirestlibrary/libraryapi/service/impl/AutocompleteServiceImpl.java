@@ -0,0 +1,208 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.dto.AutocompleteField;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.AutocompleteService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Autocomplete por prefixo sobre titulo e autor, todo em memoria.
+ * Cada campo guarda as chaves normalizadas (sem acento, minusculas) num TreeMap:
+ * o valor completo e, separadamente, cada sufixo que comeca uma palavra.
+ * Uma consulta percorre apenas o subMap do prefixo e para ao atingir o limite.
+ */
+@Service
+@Slf4j
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    static final int MAX_LIMIT = 50;
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final BookRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Book> documents = new HashMap<>();
+    private final Map<AutocompleteField, PrefixMap> fullKeys = new EnumMap<>(AutocompleteField.class);
+    private final Map<AutocompleteField, PrefixMap> wordKeys = new EnumMap<>(AutocompleteField.class);
+
+    public AutocompleteServiceImpl(BookRepository repository) {
+
+        this.repository = repository;
+        for (AutocompleteField field : AutocompleteField.values()) {
+            fullKeys.put(field, new PrefixMap());
+            wordKeys.put(field, new PrefixMap());
+        }
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            fullKeys.values().forEach(PrefixMap::clear);
+            wordKeys.values().forEach(PrefixMap::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long lastId = 0L;
+        List<Book> chunk;
+        do {
+            chunk = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            chunk.forEach(this::index);
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        log.info("Autocomplete de livros carregado com {} livros", documents.size());
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Book document = Book.builder().id(book.getId()).title(book.getTitle()).author(book.getAuthor()).build();
+
+        lock.writeLock().lock();
+        try {
+            unindex(documents.put(document.getId(), document));
+            for (AutocompleteField field : AutocompleteField.values()) {
+                String value = valueOf(document, field);
+                forEachKey(value, (full, key) -> (full ? fullKeys : wordKeys).get(field).add(key, value));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(documents.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> suggest(AutocompleteField field, String prefix, int limit) {
+        String key = normalize(prefix);
+        int max = Math.max(0, Math.min(limit, MAX_LIMIT));
+        if (key == null || key.isEmpty() || max == 0) {
+            return Collections.emptyList();
+        }
+
+        Set<String> suggestions = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            fullKeys.get(field).collect(key, max, suggestions);
+            wordKeys.get(field).collect(key, max, suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions.stream().limit(max).collect(Collectors.toList());
+    }
+
+    private void unindex(Book document) {
+        if (document == null) {
+            return;
+        }
+        for (AutocompleteField field : AutocompleteField.values()) {
+            String value = valueOf(document, field);
+            forEachKey(value, (full, key) -> (full ? fullKeys : wordKeys).get(field).remove(key, value));
+        }
+    }
+
+    private static String valueOf(Book book, AutocompleteField field) {
+        return field == AutocompleteField.TITLE ? book.getTitle() : book.getAuthor();
+    }
+
+    private static void forEachKey(String value, KeyConsumer consumer) {
+        String key = normalize(value);
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        consumer.accept(true, key);
+        for (int i = 1; i < key.length(); i++) {
+            if (Character.isLetterOrDigit(key.charAt(i)) && !Character.isLetterOrDigit(key.charAt(i - 1))) {
+                consumer.accept(false, key.substring(i));
+            }
+        }
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private interface KeyConsumer {
+
+        void accept(boolean full, String key);
+    }
+
+    private static final class PrefixMap {
+
+        // chave normalizada -> valor original -> quantidade de livros com esse valor
+        private final TreeMap<String, Map<String, Integer>> keys = new TreeMap<>();
+
+        void add(String key, String value) {
+            keys.computeIfAbsent(key, k -> new TreeMap<>()).merge(value, 1, Integer::sum);
+        }
+
+        void remove(String key, String value) {
+            Map<String, Integer> values = keys.get(key);
+            if (values == null) {
+                return;
+            }
+            values.computeIfPresent(value, (v, count) -> count > 1 ? count - 1 : null);
+            if (values.isEmpty()) {
+                keys.remove(key);
+            }
+        }
+
+        void collect(String prefix, int limit, Set<String> suggestions) {
+            for (Map.Entry<String, Map<String, Integer>> entry : keys.tailMap(prefix, true).entrySet()) {
+                if (suggestions.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                    return;
+                }
+                suggestions.addAll(entry.getValue().keySet());
+            }
+        }
+
+        void clear() {
+            keys.clear();
+        }
+    }
+}
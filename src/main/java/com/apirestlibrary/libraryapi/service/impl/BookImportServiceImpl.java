@@ -0,0 +1,292 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.BookImportErrorDTO;
+import com.apirestlibrary.libraryapi.api.dto.BookImportFormat;
+import com.apirestlibrary.libraryapi.api.dto.BookImportReportDTO;
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.AutocompleteService;
+import com.apirestlibrary.libraryapi.service.BookImportService;
+import com.apirestlibrary.libraryapi.service.BookIndexService;
+import com.apirestlibrary.libraryapi.service.CountCacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importacao em massa lendo o corpo linha a linha, sem carrega-lo inteiro em memoria.
+ * As linhas validas sao agrupadas em blocos: cada bloco confere as isbns ja cadastradas
+ * com uma unica consulta e e gravado numa transacao propria com inserts em lote.
+ */
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String COUNT_REGION = "books";
+
+    private final BookRepository repository;
+    private final BookIndexService indexService;
+    private final AutocompleteService autocompleteService;
+    private final CountCacheService countCacheService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BookImportServiceImpl(BookRepository repository,
+                                 BookIndexService indexService,
+                                 AutocompleteService autocompleteService,
+                                 CountCacheService countCacheService,
+                                 EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 Validator validator,
+                                 @Value("${application.book-import.chunk-size:1000}") int chunkSize) {
+
+        this.repository = repository;
+        this.indexService = indexService;
+        this.autocompleteService = autocompleteService;
+        this.countCacheService = countCacheService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BookImportReportDTO importBooks(InputStream input, BookImportFormat format) {
+        long start = System.currentTimeMillis();
+        BookImportReportDTO report = new BookImportReportDTO();
+        Set<Long> seenIsbns = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            Map<String, Integer> header = null;
+            if (format == BookImportFormat.CSV) {
+                header = headerOf(reader.readLine());
+                lineNumber++;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                BookDTO dto;
+                try {
+                    dto = format == BookImportFormat.CSV ? fromCsv(header, line) : fromJson(line);
+                } catch (IOException | RuntimeException e) {
+                    reject(report, lineNumber, null, "Linha invalida");
+                    continue;
+                }
+
+                String error = validate(dto);
+                if (error != null) {
+                    reject(report, lineNumber, dto.getIsbn(), error);
+                    continue;
+                }
+                long isbnKey = Isbn.keyOf(dto.getIsbn());
+                if (isbnKey == Isbn.NO_KEY) {
+                    reject(report, lineNumber, dto.getIsbn(), "Isbn invalida");
+                    continue;
+                }
+                if (!seenIsbns.add(isbnKey)) {
+                    reject(report, lineNumber, dto.getIsbn(), "Isbn duplicada no arquivo");
+                    continue;
+                }
+
+                chunk.add(new ImportRow(lineNumber, dto, isbnKey));
+                if (chunk.size() == chunkSize) {
+                    write(chunk, report);
+                    chunk.clear();
+                }
+            }
+            write(chunk, report);
+        } catch (IOException e) {
+            throw new BusinessException("Falha ao ler o arquivo de importacao");
+        }
+
+        if (report.getImported() > 0) {
+            countCacheService.invalidate(COUNT_REGION);
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("Importacao de livros finalizada: {} importados, {} rejeitados em {} ms",
+                report.getImported(), report.getRejected(), report.getElapsedMillis());
+        return report;
+    }
+
+    private void write(List<ImportRow> chunk, BookImportReportDTO report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Long> isbnKeys = chunk.stream().map(row -> row.isbnKey).collect(Collectors.toList());
+        Set<Long> existing = new HashSet<>(repository.findExistingIsbnKeys(isbnKeys));
+
+        List<ImportRow> accepted = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (existing.contains(row.isbnKey)) {
+                reject(report, row.line, row.dto.getIsbn(), "Isbn ja cadastrada");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<Book> books = accepted.stream()
+                .map(row -> Book.builder()
+                        .title(row.dto.getTitle())
+                        .author(row.dto.getAuthor())
+                        .isbn(row.dto.getIsbn())
+                        .build())
+                .collect(Collectors.toList());
+        try {
+            transactionTemplate.execute(status -> {
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                books.forEach(entityManager::persist);
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (DataAccessException | PersistenceException e) {
+            log.error("Falha ao gravar bloco de importacao de livros", e);
+            accepted.forEach(row -> reject(report, row.line, row.dto.getIsbn(), "Falha ao gravar o bloco"));
+            return;
+        }
+
+        books.forEach(indexService::index);
+        books.forEach(autocompleteService::index);
+        report.setImported(report.getImported() + books.size());
+    }
+
+    private String validate(BookDTO dto) {
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void reject(BookImportReportDTO report, long line, String isbn, String error) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(BookImportErrorDTO.builder().line(line).isbn(isbn).error(error).build());
+        }
+    }
+
+    private BookDTO fromJson(String line) throws IOException {
+        BookDTO dto = objectMapper.readValue(line, BookDTO.class);
+        dto.setId(null);
+        return dto;
+    }
+
+    private BookDTO fromCsv(Map<String, Integer> header, String line) {
+        List<String> values = parseCsvLine(line);
+        return BookDTO.builder()
+                .title(valueOf(values, header.get("title")))
+                .author(valueOf(values, header.get("author")))
+                .isbn(valueOf(values, header.get("isbn")))
+                .build();
+    }
+
+    private static String valueOf(List<String> values, int index) {
+        if (index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Map<String, Integer> headerOf(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        if (line != null) {
+            List<String> columns = parseCsvLine(line);
+            for (int i = 0; i < columns.size(); i++) {
+                header.put(columns.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        if (!header.containsKey("title") || !header.containsKey("author") || !header.containsKey("isbn")) {
+            throw new BusinessException("Cabecalho do csv deve conter as colunas title, author e isbn");
+        }
+        return header;
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static final class ImportRow {
+
+        private final long line;
+        private final BookDTO dto;
+        private final long isbnKey;
+
+        ImportRow(long line, BookDTO dto, long isbnKey) {
+            this.line = line;
+            this.dto = dto;
+            this.isbnKey = isbnKey;
+        }
+    }
+}
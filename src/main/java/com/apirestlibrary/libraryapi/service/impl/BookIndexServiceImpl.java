@@ -0,0 +1,412 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.BookIndexService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Indice invertido em memoria (trigramas) sobre titulo, autor e isbn.
+ * Mantem a semantica "contem, ignorando maiusculas" do antigo ExampleMatcher,
+ * mas sem varrer a tabela: os trigramas reduzem os candidatos e o texto
+ * normalizado de cada livro confirma o match.
+ */
+@Service
+@Slf4j
+public class BookIndexServiceImpl implements BookIndexService {
+
+    private static final int GRAM_SIZE = 3;
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final BookRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedBook> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    // livros gravados ou removidos durante a carga, para nao sobrescreve-los com um bloco lido antes
+    private Set<Long> changedWhileRebuilding;
+    private volatile boolean ready;
+
+    public BookIndexServiceImpl(BookRepository repository) {
+
+        this.repository = repository;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            documents.clear();
+            postings.clear();
+            changedWhileRebuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long lastId = 0L;
+        List<Book> chunk;
+        do {
+            chunk = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (Book book : chunk) {
+                    if (!changedWhileRebuilding.contains(book.getId())) {
+                        put(documentOf(book));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            changedWhileRebuilding = null;
+            ready = true;
+            log.info("Indice de livros carregado com {} livros", documents.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        IndexedBook document = documentOf(book);
+
+        lock.writeLock().lock();
+        try {
+            if (changedWhileRebuilding != null) {
+                changedWhileRebuilding.add(document.id);
+            }
+            put(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (changedWhileRebuilding != null) {
+                changedWhileRebuilding.add(id);
+            }
+            unindex(documents.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Long> search(Book filter, Pageable pageable) {
+        Map<Field, String> criteria = criteriaOf(filter);
+        Comparator<Match> order = comparatorOf(pageable.getSort());
+
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(filter.getId(), criteria)) {
+                IndexedBook document = documents.get(id);
+                if (document != null && document.matches(criteria)) {
+                    matches.add(new Match(document, document.score(criteria)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(order);
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<Long> ids = matches.subList(from, to)
+                .stream()
+                .map(match -> match.document.id)
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(ids, pageable, matches.size());
+    }
+
+    @Override
+    public List<Long> searchAfter(Book filter, KeysetCursor after, int limit) {
+        Map<Field, String> criteria = criteriaOf(filter);
+        String afterTitle = after == null ? null : normalize(after.getKey());
+
+        List<IndexedBook> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(filter.getId(), criteria)) {
+                IndexedBook document = documents.get(id);
+                if (document != null && document.title != null && document.matches(criteria)
+                        && (after == null || document.isAfter(afterTitle, after.getId()))) {
+                    matches.add(document);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparing((IndexedBook document) -> document.title)
+                        .thenComparing(document -> document.id))
+                .limit(limit)
+                .map(document -> document.id)
+                .collect(Collectors.toList());
+    }
+
+    private Collection<Long> candidates(Long id, Map<Field, String> criteria) {
+        if (id != null) {
+            return Collections.singleton(id);
+        }
+        Set<Long> smallest = null;
+        for (Map.Entry<Field, String> criterion : criteria.entrySet()) {
+            for (String gram : grams(criterion.getValue())) {
+                Set<Long> posting = postings.getOrDefault(criterion.getKey().key(gram), Collections.emptySet());
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+        }
+        return smallest != null ? new ArrayList<>(smallest) : new ArrayList<>(documents.keySet());
+    }
+
+    private static IndexedBook documentOf(Book book) {
+        return new IndexedBook(
+                book.getId(),
+                normalize(book.getTitle()),
+                normalize(book.getAuthor()),
+                normalize(book.getIsbn()));
+    }
+
+    private void put(IndexedBook document) {
+        unindex(documents.put(document.id, document));
+        for (Field field : Field.values()) {
+            for (String gram : grams(field.valueOf(document))) {
+                postings.computeIfAbsent(field.key(gram), key -> new HashSet<>()).add(document.id);
+            }
+        }
+    }
+
+    private void unindex(IndexedBook document) {
+        if (document == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            for (String gram : grams(field.valueOf(document))) {
+                String key = field.key(gram);
+                Set<Long> posting = postings.get(key);
+                if (posting != null) {
+                    posting.remove(document.id);
+                    if (posting.isEmpty()) {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<Field, String> criteriaOf(Book filter) {
+        Map<Field, String> criteria = new HashMap<>();
+        if (filter.getTitle() != null) {
+            criteria.put(Field.TITLE, normalize(filter.getTitle()));
+        }
+        if (filter.getAuthor() != null) {
+            criteria.put(Field.AUTHOR, normalize(filter.getAuthor()));
+        }
+        if (filter.getIsbn() != null) {
+            criteria.put(Field.ISBN, normalize(filter.getIsbn()));
+        }
+        return criteria;
+    }
+
+    private Comparator<Match> comparatorOf(Sort sort) {
+        Comparator<Match> ranking = Comparator.<Match>comparingInt(match -> match.score).reversed();
+        if (sort.isUnsorted()) {
+            return ranking.thenComparing((Match match) -> match.document.id);
+        }
+
+        Comparator<Match> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Match> next = (left, right) -> compareNullsLast(
+                    sortKeyOf(left.document, order.getProperty()),
+                    sortKeyOf(right.document, order.getProperty()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator.thenComparing((Match match) -> match.document.id);
+    }
+
+    private static Comparable sortKeyOf(IndexedBook document, String property) {
+        switch (property) {
+            case "id":
+                return document.id;
+            case "title":
+                return document.title;
+            case "author":
+                return document.author;
+            case "isbn":
+                return document.isbn;
+            default:
+                throw new BusinessException("Campo de ordenacao invalido: " + property);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareNullsLast(Comparable left, Comparable right) {
+        if (left == null || right == null) {
+            return left == right ? 0 : left == null ? 1 : -1;
+        }
+        return left.compareTo(right);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String value) {
+        if (value == null || value.length() < GRAM_SIZE) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private enum Field {
+        TITLE('t'), AUTHOR('a'), ISBN('i');
+
+        private final char prefix;
+
+        Field(char prefix) {
+            this.prefix = prefix;
+        }
+
+        String key(String gram) {
+            return prefix + gram;
+        }
+
+        String valueOf(IndexedBook document) {
+            switch (this) {
+                case TITLE:
+                    return document.title;
+                case AUTHOR:
+                    return document.author;
+                default:
+                    return document.isbn;
+            }
+        }
+    }
+
+    private static final class IndexedBook {
+
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final String isbn;
+
+        IndexedBook(Long id, String title, String author, String isbn) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.isbn = isbn;
+        }
+
+        boolean matches(Map<Field, String> criteria) {
+            for (Map.Entry<Field, String> criterion : criteria.entrySet()) {
+                String value = criterion.getKey().valueOf(this);
+                if (value == null || !value.contains(criterion.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int score(Map<Field, String> criteria) {
+            int score = 0;
+            for (Map.Entry<Field, String> criterion : criteria.entrySet()) {
+                String value = criterion.getKey().valueOf(this);
+                String term = criterion.getValue();
+                if (value.equals(term)) {
+                    score += 4;
+                } else if (value.startsWith(term)) {
+                    score += 3;
+                } else if (startsWord(value, term)) {
+                    score += 2;
+                } else {
+                    score += 1;
+                }
+            }
+            return score;
+        }
+
+        boolean isAfter(String afterTitle, Long afterId) {
+            int compare = title.compareTo(afterTitle);
+            return compare > 0 || (compare == 0 && id > afterId);
+        }
+
+        private static boolean startsWord(String value, String term) {
+            for (int i = value.indexOf(term); i > 0; i = value.indexOf(term, i + 1)) {
+                if (!Character.isLetterOrDigit(value.charAt(i - 1))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Match {
+
+        private final IndexedBook document;
+        private final int score;
+
+        Match(IndexedBook document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -1,33 +1,79 @@
 package com.apirestlibrary.libraryapi.service.impl;
 
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
 import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.BookSpecifications;
+import com.apirestlibrary.libraryapi.service.AutocompleteService;
+import com.apirestlibrary.libraryapi.service.BookIndexService;
 import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.CountCacheService;
+import com.apirestlibrary.libraryapi.service.IsbnCacheService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final String COUNT_REGION = "books";
+    private static final Sort KEYSET_SORT = Sort.by("title", "id");
+
     private BookRepository repository;
+    private BookIndexService indexService;
+    private CountCacheService countCacheService;
+    private IsbnCacheService isbnCacheService;
+    private AutocompleteService autocompleteService;
 
-    public BookServiceImpl (BookRepository repository){
+    public BookServiceImpl (BookRepository repository, BookIndexService indexService,
+                            CountCacheService countCacheService, IsbnCacheService isbnCacheService,
+                            AutocompleteService autocompleteService){
 
         this.repository = repository;
+        this.indexService = indexService;
+        this.countCacheService = countCacheService;
+        this.isbnCacheService = isbnCacheService;
+        this.autocompleteService = autocompleteService;
     }
 
+    /**
+     * A unicidade da isbn fica a cargo do indice ux_book_isbn: o insert vai direto para a base
+     * e a violacao da chave e traduzida para BusinessException, sem consulta previa.
+     */
     @Override
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())){
+        requireValidIsbn(book);
+        if (isbnCacheService.contains(book.getIsbn())){
             throw new BusinessException("Isbn ja cadastrada");
         }
-        return repository.save(book);
+        Book saved = saveAndFlush(book);
+        isbnCacheService.put(saved);
+        indexService.index(saved);
+        autocompleteService.index(saved);
+        countCacheService.invalidate(COUNT_REGION);
+        return saved;
     }
 
     @Override
@@ -41,6 +87,10 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Id nao pode ser nulo");
         }
         this.repository.delete(book);
+        this.isbnCacheService.invalidate(book.getIsbn());
+        this.indexService.remove(book.getId());
+        this.autocompleteService.remove(book.getId());
+        this.countCacheService.invalidate(COUNT_REGION);
     }
 
     @Override
@@ -48,22 +98,154 @@ public class BookServiceImpl implements BookService {
         if (book == null || book.getId() == null){
             throw new IllegalArgumentException("Id nao pode ser nulo");
         }
-        return this.repository.save(book);
+        requireValidIsbn(book);
+        Book updated = saveAndFlush(book);
+        // sai do cache qualquer isbn que aponte para este livro: se a atualizacao troca a isbn, a
+        // chave antiga nao pode continuar apontando para ele
+        this.isbnCacheService.invalidateBook(book.getId());
+        this.isbnCacheService.invalidate(book.getIsbn());
+        this.indexService.index(updated);
+        this.autocompleteService.index(updated);
+        this.countCacheService.invalidate(COUNT_REGION);
+        return updated;
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageableRequest) {
-        Example<Book> example = Example.of(filter, ExampleMatcher
+        if (!hasCriteria(filter)) {
+            return this.repository.findAll(pageableRequest);
+        }
+        if (indexService.isReady()) {
+            Page<Long> ids = indexService.search(filter, pageableRequest);
+            return new PageImpl<>(findAllInOrder(ids.getContent()), pageableRequest, ids.getTotalElements());
+        }
+
+        return this.repository.findAll(exampleOf(filter), pageableRequest);
+    }
+
+    @Override
+    public Slice<Book> findSlice(Book filter, Pageable pageableRequest) {
+        if (!hasCriteria(filter)) {
+            return this.repository.findAllBy(pageableRequest);
+        }
+        if (indexService.isReady()) {
+            Page<Book> page = find(filter, pageableRequest);
+            return new SliceImpl<>(page.getContent(), pageableRequest, page.hasNext());
+        }
+        return this.repository.findSlice(BookSpecifications.matching(exampleOf(filter)), pageableRequest);
+    }
+
+    @Override
+    public long countApproximate(Book filter) {
+        if (!hasCriteria(filter)) {
+            return countCacheService.count(COUNT_REGION, "all", this.repository::count);
+        }
+        if (indexService.isReady()) {
+            return indexService.search(filter, PageRequest.of(0, 1)).getTotalElements();
+        }
+        return countCacheService.count(COUNT_REGION, filter.toString(), () -> this.repository.count(exampleOf(filter)));
+    }
+
+    @Override
+    public List<Book> findAfter(Book filter, KeysetCursor after, int limit) {
+        if (!hasCriteria(filter)) {
+            PageRequest limitRequest = PageRequest.of(0, limit);
+            return after == null
+                    ? this.repository.findByTitleKeyset(limitRequest)
+                    : this.repository.findByTitleKeysetAfter(after.getKey(), after.getId(), limitRequest);
+        }
+        if (indexService.isReady()) {
+            return findAllInOrder(indexService.searchAfter(filter, after, limit));
+        }
+        Specification<Book> keyset = after == null
+                ? BookSpecifications.hasTitle()
+                : BookSpecifications.titleAfter(after.getKey(), after.getId());
+        return this.repository.findFirst(keyset.and(BookSpecifications.matching(exampleOf(filter))), KEYSET_SORT, limit);
+    }
+
+    @Override
+    public Optional<Book> getBookByIsbn(String isbn) {
+        Optional<Long> cachedId = this.isbnCacheService.getId(isbn);
+        if (cachedId.isPresent()) {
+            Optional<Book> cached = this.repository.findById(cachedId.get())
+                    .filter(book -> Isbn.keyOf(book.getIsbn()) == Isbn.keyOf(isbn));
+            if (cached.isPresent()) {
+                return cached;
+            }
+            this.isbnCacheService.invalidate(isbn);
+        }
+        Optional<Book> loaded = this.repository.findByIsbn(isbn);
+        loaded.ifPresent(this.isbnCacheService::put);
+        return loaded;
+    }
+
+    @Override
+    public List<Book> getBooksByIsbns(Collection<String> isbns) {
+        if (isbns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> keys = isbns.stream()
+                .map(Isbn::keyOf)
+                .filter(key -> key != Isbn.NO_KEY)
+                .collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Book> books = this.repository.findByIsbnKeyIn(keys);
+        books.forEach(this.isbnCacheService::put);
+        return books;
+    }
+
+    private static void requireValidIsbn(Book book) {
+        if (!Isbn.isValid(book.getIsbn())) {
+            throw new BusinessException("Isbn invalida");
+        }
+    }
+
+    private Book saveAndFlush(Book book) {
+        try {
+            return this.repository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            if (isIsbnViolation(e)) {
+                throw new BusinessException("Isbn ja cadastrada");
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isIsbnViolation(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+        String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(Book.ISBN_UNIQUE_INDEX);
+    }
+
+    // isbnKey e primitivo: sem ignorar o caminho o exemplo filtraria por isbn_key = 0
+    private Example<Book> exampleOf(Book filter) {
+        return Example.of(filter, ExampleMatcher
                 .matching()
                 .withIgnoreCase()
                 .withIgnoreNullValues()
+                .withIgnorePaths("isbnKey")
                 .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+    }
 
-        return this.repository.findAll(example, pageableRequest);
+    private boolean hasCriteria(Book filter) {
+        return filter.getId() != null
+                || filter.getTitle() != null
+                || filter.getAuthor() != null
+                || filter.getIsbn() != null;
     }
 
-    @Override
-    public Optional<Book> getBookByIsbn(String isbn) {
-        return this.repository.findByIsbn(isbn);
+    private List<Book> findAllInOrder(List<Long> ids) {
+        Map<Long, Book> books = this.repository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 }
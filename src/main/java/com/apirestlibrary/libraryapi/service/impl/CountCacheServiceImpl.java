@@ -0,0 +1,69 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.service.CountCacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache de totais por filtro. Um total so vale enquanto nao houver escrita na regiao;
+ * o ttl e apenas um limite extra de idade. Acima de max-entries o Caffeine descarta
+ * os totais menos usados, sem esvaziar o cache todo de uma vez.
+ */
+@Service
+public class CountCacheServiceImpl implements CountCacheService {
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Cache<String, CachedCount> counts;
+
+    public CountCacheServiceImpl(@Value("${application.count-cache.ttl-seconds:60}") long ttlSeconds,
+                                 @Value("${application.count-cache.max-entries:10000}") int maxEntries) {
+
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public long count(String region, String key, LongSupplier counter) {
+        String cacheKey = region + ':' + key;
+        long version = versionOf(region).get();
+
+        CachedCount cached = counts.getIfPresent(cacheKey);
+        if (cached != null && cached.version == version) {
+            return cached.total;
+        }
+
+        long total = counter.getAsLong();
+        counts.put(cacheKey, new CachedCount(total, version));
+        return total;
+    }
+
+    @Override
+    public void invalidate(String region) {
+        versionOf(region).incrementAndGet();
+    }
+
+    private AtomicLong versionOf(String region) {
+        return versions.computeIfAbsent(region, key -> new AtomicLong());
+    }
+
+    private static final class CachedCount {
+
+        private final long total;
+        private final long version;
+
+        CachedCount(long total, long version) {
+            this.total = total;
+            this.version = version;
+        }
+    }
+}
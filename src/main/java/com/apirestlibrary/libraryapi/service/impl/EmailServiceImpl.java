@@ -2,34 +2,127 @@ package com.apirestlibrary.libraryapi.service.impl;
 
 import com.apirestlibrary.libraryapi.service.EmailService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
 
+/**
+ * Envia os avisos reaproveitando conexoes smtp ja autenticadas: cada lote pega uma conexao
+ * livre do pool (ou abre uma nova) e a devolve no fim, ate poolSize conexoes ociosas.
+ * Conexoes que cairam sao fechadas e descartadas.
+ */
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender javaMailSender;
+    private final JavaMailSenderImpl javaMailSender;
+
+    private final Deque<Transport> idleTransports = new LinkedBlockingDeque<>();
 
     @Value("${application.mail-default-remetent}")
     private String remetentMail;
 
+    @Value("${application.mail.pool-size:4}")
+    private int poolSize;
+
+    /**
+     * Uma mensagem por destinatario, enviadas numa conexao do pool. Em falha parcial o
+     * MailSendException traz as mensagens que nao foram entregues.
+     */
     @Override
-    public void sendEmailsList(String messageMail, List<String> emailsList) {
+    public void sendEmails(String subject, String messageMail, List<String> emails) {
 
-        String[] arraysMail = emailsList.toArray(new String[emailsList.size()]);
+        Transport transport = borrowTransport();
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        try {
+            for (String email : emails) {
+                SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
+                simpleMailMessage.setFrom(remetentMail);
+                simpleMailMessage.setSubject(subject);
+                simpleMailMessage.setText(messageMail);
+                simpleMailMessage.setTo(email);
+                try {
+                    MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+                    simpleMailMessage.copyTo(new MimeMailMessage(mimeMessage));
+                    mimeMessage.saveChanges();
+                    transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                } catch (MessagingException e) {
+                    failedMessages.put(simpleMailMessage, e);
+                }
+            }
+        } finally {
+            releaseTransport(transport);
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
 
-        SimpleMailMessage simpleMailMessage = new SimpleMailMessage();
-        simpleMailMessage.setFrom(remetentMail);
-        simpleMailMessage.setSubject("Livro com Empréstimo atrasado");
-        simpleMailMessage.setText(messageMail);
-        simpleMailMessage.setTo(arraysMail);
+    @PreDestroy
+    public void shutdown() {
+        Transport transport;
+        while ((transport = idleTransports.pollFirst()) != null) {
+            close(transport);
+        }
+    }
 
-        javaMailSender.send(simpleMailMessage);
+    private Transport borrowTransport() {
+        Transport transport;
+        while ((transport = idleTransports.pollFirst()) != null) {
+            if (transport.isConnected()) {
+                return transport;
+            }
+            close(transport);
+        }
+        try {
+            Session session = javaMailSender.getSession();
+            // mesma resolucao do protocolo que o JavaMailSenderImpl usa
+            String protocol = javaMailSender.getProtocol();
+            if (protocol == null) {
+                protocol = session.getProperty("mail.transport.protocol");
+            }
+            transport = session.getTransport(protocol == null ? JavaMailSenderImpl.DEFAULT_PROTOCOL : protocol);
+            transport.connect(javaMailSender.getHost(), javaMailSender.getPort(),
+                    emptyToNull(javaMailSender.getUsername()), emptyToNull(javaMailSender.getPassword()));
+            return transport;
+        } catch (MessagingException e) {
+            throw new MailSendException("Falha ao conectar no servidor smtp", e);
+        }
+    }
+
+    private void releaseTransport(Transport transport) {
+        if (transport.isConnected() && idleTransports.size() < poolSize) {
+            idleTransports.offerFirst(transport);
+        } else {
+            close(transport);
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Falha ao fechar conexao smtp", e);
+        }
+    }
 
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
 }
@@ -0,0 +1,178 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
+import com.apirestlibrary.libraryapi.api.dto.LoanExportDTO;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.ExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Exportacao completa das tabelas em streaming: as linhas sao lidas por cursor jdbc,
+ * escritas e desanexadas uma a uma, sem materializar o resultado em memoria.
+ * Faixas de id [fromId, toId) permitem que varios clientes leiam em paralelo.
+ */
+@Service
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+
+    static final String BOOK_HEADER = "id,title,author,isbn";
+    static final String LOAN_HEADER = "id,bookId,isbn,customer,emailCustomer,loanDate,returned";
+
+    private static final int FLUSH_INTERVAL = 1000;
+    private static final int MAX_PARTITIONS = 64;
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ExportServiceImpl(BookRepository bookRepository,
+                             LoanRepository loanRepository,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper) {
+
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(Writer writer, ExportFormat format, Long fromId, Long toId) {
+        try (Stream<Book> books = bookRepository.streamByIdRange(lowerOf(fromId), upperOf(toId))) {
+            return write(writer, format, BOOK_HEADER, books, book -> {
+                entityManager.detach(book);
+                return BookDTO.builder()
+                        .id(book.getId())
+                        .title(book.getTitle())
+                        .author(book.getAuthor())
+                        .isbn(book.getIsbn())
+                        .build();
+            }, book -> csvOf(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn()));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportLoans(Writer writer, ExportFormat format, Long fromId, Long toId) {
+        try (Stream<Loan> loans = loanRepository.streamByIdRange(lowerOf(fromId), upperOf(toId))) {
+            return write(writer, format, LOAN_HEADER, loans, loan -> {
+                entityManager.detach(loan);
+                Book book = loan.getBook();
+                if (book != null) {
+                    entityManager.detach(book);
+                }
+                return LoanExportDTO.builder()
+                        .id(loan.getId())
+                        .bookId(book == null ? null : book.getId())
+                        .isbn(book == null ? null : book.getIsbn())
+                        .customer(loan.getCustomer())
+                        .emailCustomer(loan.getEmailCustomer())
+                        .loanDate(loan.getLoanDate())
+                        .returned(loan.getReturned())
+                        .build();
+            }, loan -> csvOf(loan.getId(), loan.getBookId(), loan.getIsbn(), loan.getCustomer(),
+                    loan.getEmailCustomer(), loan.getLoanDate(), loan.getReturned()));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ExportPartitionDTO> bookPartitions(int count) {
+        return partitionsOf(bookRepository.findMinId(), bookRepository.findMaxId(), count);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ExportPartitionDTO> loanPartitions(int count) {
+        return partitionsOf(loanRepository.findMinId(), loanRepository.findMaxId(), count);
+    }
+
+    private <T, R> long write(Writer writer,
+                              ExportFormat format,
+                              String header,
+                              Stream<T> rows,
+                              Function<T, R> mapper,
+                              Function<R, String> csv) {
+        long written = 0;
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(header);
+                writer.write('\n');
+            }
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                R row = mapper.apply(iterator.next());
+                writer.write(format == ExportFormat.CSV ? csv.apply(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                if (++written % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Exportacao finalizada com {} linhas", written);
+        return written;
+    }
+
+    static List<ExportPartitionDTO> partitionsOf(Long minId, Long maxId, int count) {
+        if (minId == null || maxId == null) {
+            return Collections.emptyList();
+        }
+        int partitions = Math.max(1, Math.min(count, MAX_PARTITIONS));
+        long span = maxId - minId + 1;
+        long width = Math.max(1, (span + partitions - 1) / partitions);
+
+        List<ExportPartitionDTO> result = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += width) {
+            result.add(ExportPartitionDTO.builder().fromId(from).toId(Math.min(from + width, maxId + 1)).build());
+        }
+        return result;
+    }
+
+    static String csvOf(Object... values) {
+        List<String> columns = new ArrayList<>(values.length);
+        for (Object value : values) {
+            columns.add(escape(value == null ? "" : Objects.toString(value)));
+        }
+        return String.join(",", columns);
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static long lowerOf(Long fromId) {
+        return fromId == null ? Long.MIN_VALUE : fromId;
+    }
+
+    private static long upperOf(Long toId) {
+        return toId == null ? Long.MAX_VALUE : toId;
+    }
+}
@@ -0,0 +1,78 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
+import com.apirestlibrary.libraryapi.service.IsbnCacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cache limitado isbn -> id do livro, indexado pela chave numerica da isbn (formas com e sem
+ * hifen, ou isbn-10 e isbn-13 do mesmo livro, caem na mesma entrada). Guarda so o id: a
+ * entidade e relida pelo repositorio (cache de segundo nivel), nunca compartilhada entre sessoes. Os contadores de hit, miss e eviction ficam
+ * disponiveis no actuator em /actuator/metrics/cache.gets?tag=cache:books.isbn
+ * e /actuator/metrics/cache.evictions?tag=cache:books.isbn.
+ */
+@Service
+public class IsbnCacheServiceImpl implements IsbnCacheService {
+
+    static final String CACHE_NAME = "books.isbn";
+
+    private final Cache<Long, Long> cache;
+
+    public IsbnCacheServiceImpl(MeterRegistry meterRegistry,
+                                @Value("${application.isbn-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${application.isbn-cache.expire-after-write-seconds:600}") long expireAfterWrite) {
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWrite))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public Optional<Long> getId(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        return key == Isbn.NO_KEY ? Optional.empty() : Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    @Override
+    public boolean contains(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        return key != Isbn.NO_KEY && cache.getIfPresent(key) != null;
+    }
+
+    @Override
+    public void put(Book book) {
+        long key = book == null || book.getId() == null ? Isbn.NO_KEY : Isbn.keyOf(book.getIsbn());
+        if (key != Isbn.NO_KEY) {
+            cache.put(key, book.getId());
+        }
+    }
+
+    @Override
+    public void invalidate(String isbn) {
+        long key = Isbn.keyOf(isbn);
+        if (key != Isbn.NO_KEY) {
+            cache.invalidate(key);
+        }
+    }
+
+    // percorre o cache (limitado a maximumSize entradas); chamado so na atualizacao de livro
+    @Override
+    public void invalidateBook(Long bookId) {
+        if (bookId != null) {
+            cache.asMap().values().removeIf(bookId::equals);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.LoanArchive;
+import com.apirestlibrary.libraryapi.model.repository.LoanArchiveRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.CountCacheService;
+import com.apirestlibrary.libraryapi.service.LoanArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move os emprestimos devolvidos mais antigos que a retencao para loan_archive, mantendo a
+ * tabela loan pequena. Cada bloco de chunkSize linhas e copiado e apagado numa transacao
+ * curta, entao as travas duram so o tempo de um bloco.
+ */
+@Service
+@Slf4j
+public class LoanArchiveServiceImpl implements LoanArchiveService {
+
+    private static final String COUNT_REGION = "loans";
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository archiveRepository;
+    private final CountCacheService countCacheService;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int chunkSize;
+
+    public LoanArchiveServiceImpl(LoanRepository loanRepository,
+                                  LoanArchiveRepository archiveRepository,
+                                  CountCacheService countCacheService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${application.loan-archive.retention-days:365}") int retentionDays,
+                                  @Value("${application.loan-archive.chunk-size:1000}") int chunkSize) {
+
+        this.loanRepository = loanRepository;
+        this.archiveRepository = archiveRepository;
+        this.countCacheService = countCacheService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int archive() {
+        LocalDate before = LocalDate.now().minusDays(retentionDays);
+        long start = System.currentTimeMillis();
+
+        int archived = 0;
+        long[] lastId = {0L};
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> {
+                List<Long> ids = loanRepository.findArchivableIds(before, lastId[0], PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                lastId[0] = ids.get(ids.size() - 1);
+                archiveRepository.archive(ids);
+                loanRepository.deleteByIdIn(ids);
+                return ids.size();
+            });
+            archived += moved;
+        } while (moved == chunkSize);
+
+        if (archived > 0) {
+            countCacheService.invalidate(COUNT_REGION);
+        }
+        log.info("Arquivamento de emprestimos finalizado: {} emprestimos anteriores a {} em {} ms",
+                archived, before, System.currentTimeMillis() - start);
+        return archived;
+    }
+
+    // os emprestimos da tabela loan vem primeiro e o historico continua a partir do fim deles
+    @Override
+    public Page<Loan> getLoansByBookWithHistory(Book book, Pageable pageable) {
+        Page<Loan> hot = loanRepository.findByBook(book, pageable);
+        long archivedTotal = archiveRepository.countByBook(book);
+
+        List<Loan> content = new ArrayList<>(hot.getContent());
+        int missing = pageable.getPageSize() - content.size();
+        if (missing > 0 && archivedTotal > 0) {
+            long offset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            archiveRepository.findByBook(book, pageable.getSort(), offset, missing)
+                    .stream()
+                    .map(LoanArchive::toLoan)
+                    .forEach(content::add);
+        }
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archivedTotal);
+    }
+}
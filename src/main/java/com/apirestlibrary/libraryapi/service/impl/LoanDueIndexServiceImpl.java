@@ -0,0 +1,160 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.LoanDueIndexService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice em memoria dos emprestimos em aberto pelo dia de vencimento (data do emprestimo
+ * mais LoanServiceImpl.LATE_LOAN_DAYS). Os atrasados de um dia sao o inicio do TreeMap, entao
+ * a contagem percorre so os dias vencidos, sem consultar a base.
+ * Carregado na subida e mantido pelo LoanServiceImpl nos emprestimos e devolucoes, depois do commit.
+ */
+@Service
+@Slf4j
+public class LoanDueIndexServiceImpl implements LoanDueIndexService {
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final LoanRepository repository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Long, Set<Long>> loansByDueDay = new TreeMap<>();
+    private final Map<Long, Long> dueDayByLoan = new HashMap<>();
+
+    // devolucoes durante a carga, para nao recolocar um emprestimo lido antes de ser devolvido
+    private Set<Long> removedWhileRebuilding;
+    private volatile boolean ready;
+
+    public LoanDueIndexServiceImpl(LoanRepository repository) {
+
+        this.repository = repository;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            loansByDueDay.clear();
+            dueDayByLoan.clear();
+            removedWhileRebuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long lastId = 0L;
+        List<LoanRepository.OpenLoan> chunk;
+        do {
+            chunk = repository.findOpenAfter(lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (LoanRepository.OpenLoan loan : chunk) {
+                    if (!removedWhileRebuilding.contains(loan.getId())) {
+                        put(loan.getId(), loan.getLoanDate());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            removedWhileRebuilding = null;
+            ready = true;
+            log.info("Indice de vencimentos carregado com {} emprestimos em aberto", dueDayByLoan.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void add(Loan loan) {
+        if (loan == null || loan.getId() == null || Boolean.TRUE.equals(loan.getReturned())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(loan.getId(), loan.getLoanDate());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long loanId) {
+        if (loanId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (removedWhileRebuilding != null) {
+                removedWhileRebuilding.add(loanId);
+            }
+            unindex(loanId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long countOverdue(LocalDate today) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Set<Long> loans : loansByDueDay.headMap(today.toEpochDay(), true).values()) {
+                count += loans.size();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Long loanId, LocalDate loanDate) {
+        unindex(loanId);
+        if (loanDate == null) {
+            return;
+        }
+        long dueDay = loanDate.plusDays(LoanServiceImpl.LATE_LOAN_DAYS).toEpochDay();
+        dueDayByLoan.put(loanId, dueDay);
+        loansByDueDay.computeIfAbsent(dueDay, day -> new HashSet<>()).add(loanId);
+    }
+
+    private void unindex(Long loanId) {
+        Long dueDay = dueDayByLoan.remove(loanId);
+        if (dueDay == null) {
+            return;
+        }
+        Set<Long> loans = loansByDueDay.get(dueDay);
+        loans.remove(loanId);
+        if (loans.isEmpty()) {
+            loansByDueDay.remove(dueDay);
+        }
+    }
+}
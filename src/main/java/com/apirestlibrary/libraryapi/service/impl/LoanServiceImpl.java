@@ -1,36 +1,221 @@
 package com.apirestlibrary.libraryapi.service.impl;
 
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanItemDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import com.apirestlibrary.libraryapi.model.entity.ActiveLoan;
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.repository.ActiveLoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
 import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanSpecifications;
+import com.apirestlibrary.libraryapi.service.CountCacheService;
+import com.apirestlibrary.libraryapi.service.LoanDueIndexService;
 import com.apirestlibrary.libraryapi.service.LoanService;
+import com.apirestlibrary.libraryapi.service.OutboxService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    private static final String COUNT_REGION = "loans";
+    static final int LATE_LOAN_DAYS = 4;
+    private static final Sort KEYSET_SORT = Sort.by("loanDate", "id");
+    private static final Map<String, String> NATIVE_SORT_COLUMNS = new HashMap<>();
+
+    static {
+        NATIVE_SORT_COLUMNS.put("id", "id");
+        NATIVE_SORT_COLUMNS.put("customer", "customer");
+        NATIVE_SORT_COLUMNS.put("emailCustomer", "email_customer");
+        NATIVE_SORT_COLUMNS.put("loanDate", "loan_date");
+        NATIVE_SORT_COLUMNS.put("returned", "returned");
+    }
+
     private LoanRepository loanRepository;
+    private BookRepository bookRepository;
+    private ActiveLoanRepository activeLoanRepository;
+    private CountCacheService countCacheService;
+    private OutboxService outboxService;
+    private LoanDueIndexService dueIndexService;
+    private TransactionTemplate transactionTemplate;
+    private int returnChunkSize;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository, BookRepository bookRepository,
+                           ActiveLoanRepository activeLoanRepository, CountCacheService countCacheService, OutboxService outboxService,
+                           LoanDueIndexService dueIndexService, PlatformTransactionManager transactionManager,
+                           @Value("${application.loan-return.chunk-size:500}") int returnChunkSize) {
 
         this.loanRepository = repository;
+        this.bookRepository = bookRepository;
+        this.activeLoanRepository = activeLoanRepository;
+        this.countCacheService = countCacheService;
+        this.outboxService = outboxService;
+        this.dueIndexService = dueIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.returnChunkSize = returnChunkSize;
     }
 
+    /**
+     * A disponibilidade do livro e decidida pela tabela active_loan (leitura pela chave
+     * primaria), sem contar o historico de emprestimos. Se o livro ja estiver emprestado a
+     * excecao desfaz a gravacao do emprestimo.
+     * A reserva trava apenas a linha do livro (select for update, sem gravar nela), entao
+     * livros diferentes nunca esperam um pelo outro e o livro em cache continua valido;
+     * requisicoes concorrentes do mesmo livro esperam a primeira terminar e encontram a reserva.
+     */
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (loanRepository.existsBookAndNotReturned(loan.getBook())){
+        Loan saved = this.loanRepository.save(loan);
+        if (!reserve(saved)) {
             throw new BusinessException("Livro ja emprestado");
         }
-        return this.loanRepository.save(loan);
+        this.outboxService.enqueue(NotificationType.LOAN_CREATED, saved);
+        afterCommit(() -> this.dueIndexService.add(saved));
+        this.countCacheService.invalidate(COUNT_REGION);
+        return saved;
+    }
+
+    /**
+     * Emprestimo em lote de um cliente, com o resultado de cada isbn na ordem da requisicao.
+     * Os livros sao lidos numa so consulta pela isbn_key e gravados pelo saveAll.
+     */
+    @Override
+    public BatchLoanReportDTO loanAll(List<String> isbns, String customer, String emailCustomer) {
+        Set<Long> isbnKeys = isbns.stream()
+                .map(Isbn::keyOf)
+                .filter(isbnKey -> isbnKey != Isbn.NO_KEY)
+                .collect(Collectors.toSet());
+        Map<Long, Book> books = isbnKeys.isEmpty()
+                ? Collections.emptyMap()
+                : this.bookRepository.findByIsbnKeyIn(isbnKeys).stream()
+                        .collect(Collectors.toMap(Book::getIsbnKey, Function.identity()));
+
+        List<Loan> loans = new ArrayList<>();
+        for (Book book : books.values()) {
+            loans.add(Loan.builder()
+                    .book(book)
+                    .customer(customer)
+                    .emailCustomer(emailCustomer)
+                    .loanDate(LocalDate.now())
+                    .build());
+        }
+        Map<Long, Long> created = new HashMap<>();
+        saveAll(loans).forEach(loan -> created.put(loan.getBook().getIsbnKey(), loan.getId()));
+
+        BatchLoanReportDTO report = new BatchLoanReportDTO();
+        Set<Long> seen = new HashSet<>();
+        for (String isbn : isbns) {
+            BatchLoanItemDTO item = BatchLoanItemDTO.builder().isbn(isbn).build();
+            long isbnKey = Isbn.keyOf(isbn);
+            if (isbnKey == Isbn.NO_KEY) {
+                item.setError("Isbn invalida");
+            } else if (!seen.add(isbnKey)) {
+                item.setError("Isbn repetida na requisicao");
+            } else if (!books.containsKey(isbnKey)) {
+                item.setError("Livro não encontrado com esse isbn fornecido");
+            } else if (!created.containsKey(isbnKey)) {
+                item.setError("Livro ja emprestado");
+            } else {
+                item.setLoanId(created.get(isbnKey));
+            }
+            report.getItems().add(item);
+        }
+        report.setCreated(created.size());
+        report.setFailed(report.getItems().size() - created.size());
+        return report;
+    }
+
+    /**
+     * Grava varios emprestimos numa unica transacao. As linhas de todos os livros sao travadas
+     * num so select for update e as reservas conferidas numa so consulta pela chave primaria;
+     * os emprestimos de livros ja emprestados sao ignorados e apenas os gravados sao retornados.
+     * Se a linha de algum livro ficar travada alem do tempo de espera o lote inteiro e
+     * desfeito; nesse caso os emprestimos sao gravados um por transacao e so os livros
+     * disputados ficam de fora.
+     */
+    @Override
+    public List<Loan> saveAll(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return loans;
+        }
+        try {
+            return this.transactionTemplate.execute(status -> saveAvailable(loans));
+        } catch (ConcurrencyFailureException e) {
+            List<Loan> saved = new ArrayList<>();
+            for (Loan loan : loans) {
+                // o id gerado na tentativa desfeita nao existe na base
+                loan.setId(null);
+                try {
+                    saved.addAll(this.transactionTemplate.execute(status -> saveAvailable(Collections.singletonList(loan))));
+                } catch (ConcurrencyFailureException contended) {
+                    // livro ainda travado por outro emprestimo: fica fora do lote como indisponivel
+                }
+            }
+            return saved;
+        }
+    }
+
+    private List<Loan> saveAvailable(List<Loan> loans) {
+        List<Long> bookIds = loans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toList());
+        // as linhas ficam travadas ate o commit, entao os livros livres aqui continuam livres;
+        // o tempo de espera esgotado sobe como ConcurrencyFailureException para o saveAll
+        Set<Long> free = this.activeLoanRepository.lockAvailable(bookIds);
+
+        // remove ao usar: o mesmo livro duas vezes no lote fica com o primeiro emprestimo
+        List<Loan> available = loans.stream()
+                .filter(loan -> free.remove(loan.getBook().getId()))
+                .collect(Collectors.toList());
+        if (available.isEmpty()) {
+            return available;
+        }
+
+        List<Loan> saved = this.loanRepository.saveAll(available);
+        this.activeLoanRepository.saveAll(saved.stream()
+                .map(loan -> ActiveLoan.builder().bookId(loan.getBook().getId()).loanId(loan.getId()).build())
+                .collect(Collectors.toList()));
+        this.outboxService.enqueueAll(NotificationType.LOAN_CREATED, saved);
+        afterCommit(() -> saved.forEach(this.dueIndexService::add));
+        this.countCacheService.invalidate(COUNT_REGION);
+        return saved;
     }
 
     @Override
@@ -38,17 +223,128 @@ public class LoanServiceImpl implements LoanService {
         return this.loanRepository.findById(id);
     }
 
+    /**
+     * Na devolucao libera o livro, descarta os avisos de atraso pendentes e grava o aviso de
+     * devolucao; um emprestimo reaberto volta a reservar o livro.
+     */
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return this.loanRepository.save(loan);
+        Loan updated = this.loanRepository.save(loan);
+        Long bookId = updated.getBook().getId();
+        if (Boolean.TRUE.equals(updated.getReturned())) {
+            this.activeLoanRepository.release(bookId, updated.getId());
+            this.outboxService.discardPending(NotificationType.LOAN_LATE, updated);
+            this.outboxService.enqueue(NotificationType.LOAN_RETURNED, updated);
+            afterCommit(() -> this.dueIndexService.remove(updated.getId()));
+        } else if (!reserve(updated)) {
+            throw new BusinessException("Livro ja emprestado");
+        } else {
+            afterCommit(() -> this.dueIndexService.add(updated));
+        }
+        this.countCacheService.invalidate(COUNT_REGION);
+        return updated;
+    }
+
+    /**
+     * Devolucao em massa por ids de emprestimo ou isbns. As isbns viram o emprestimo em aberto
+     * do livro (active_loan) e os ids sao devolvidos em blocos de returnChunkSize, cada
+     * bloco numa transacao curta. Os emprestimos sao alterados como entidades (updates em lote
+     * no flush), entao so as entradas deles saem do cache e a regiao "loan" continua valida.
+     */
+    @Override
+    public BatchReturnReportDTO returnAll(List<Long> loanIds, List<String> isbns) {
+        long start = System.currentTimeMillis();
+        BatchReturnReportDTO report = new BatchReturnReportDTO();
+
+        Map<Long, String> isbnByLoanId = new HashMap<>();
+        for (List<String> chunk : chunksOf(distinct(isbns))) {
+            resolveIsbns(chunk, isbnByLoanId, report);
+        }
+        Set<Long> ids = distinct(loanIds);
+        ids.addAll(isbnByLoanId.keySet());
+
+        for (List<Long> chunk : chunksOf(ids)) {
+            Set<Long> returned = this.transactionTemplate.execute(status -> returnChunk(chunk));
+            returned.forEach(this.dueIndexService::remove);
+            for (Long id : chunk) {
+                if (returned.contains(id)) {
+                    continue;
+                }
+                if (isbnByLoanId.containsKey(id)) {
+                    report.getMissingIsbns().add(isbnByLoanId.get(id));
+                } else {
+                    report.getMissingLoanIds().add(id);
+                }
+            }
+            report.setReturned(report.getReturned() + returned.size());
+        }
+
+        if (report.getReturned() > 0) {
+            this.countCacheService.invalidate(COUNT_REGION);
+        }
+        report.setMissing(report.getMissingLoanIds().size() + report.getMissingIsbns().size());
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        return report;
     }
 
+    /**
+     * Filtros nulos nao entram no sql. Com isbn e cliente juntos a busca usa as consultas
+     * com UNION do LoanRepository para que cada filtro use o seu indice.
+     */
     @Override
     public Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
-        return this.loanRepository.findByBookIsbnOrCustomer(
-                loanFilterDTO.getIsbn(),
+        if (isUnion(loanFilterDTO)) {
+            return this.loanRepository.findByBookIsbnOrCustomer(
+                    Isbn.keyOf(loanFilterDTO.getIsbn()),
+                    loanFilterDTO.getCustomer(),
+                    nativePageable(pageable));
+        }
+        return this.loanRepository.findAll(specificationOf(loanFilterDTO), pageable);
+    }
+
+    @Override
+    public Slice<Loan> findSlice(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        if (isUnion(loanFilterDTO)) {
+            return this.loanRepository.findSliceByBookIsbnOrCustomer(
+                    Isbn.keyOf(loanFilterDTO.getIsbn()),
+                    loanFilterDTO.getCustomer(),
+                    nativePageable(pageable));
+        }
+        return this.loanRepository.findSlice(specificationOf(loanFilterDTO), pageable);
+    }
+
+    @Override
+    public long countApproximate(LoanFilterDTO loanFilterDTO) {
+        return this.countCacheService.count(COUNT_REGION, loanFilterDTO.toString(),
+                () -> isUnion(loanFilterDTO)
+                        ? this.loanRepository.countByBookIsbnOrCustomer(
+                                Isbn.keyOf(loanFilterDTO.getIsbn()),
+                                loanFilterDTO.getCustomer())
+                        : this.loanRepository.count(specificationOf(loanFilterDTO)));
+    }
+
+    @Override
+    public List<Loan> findAfter(LoanFilterDTO loanFilterDTO, KeysetCursor after, int limit) {
+        PageRequest limitRequest = PageRequest.of(0, limit);
+        if (!isUnion(loanFilterDTO)) {
+            Specification<Loan> keyset = after == null
+                    ? LoanSpecifications.hasLoanDate()
+                    : LoanSpecifications.loanDateAfter(loanDateOf(after), after.getId());
+            return this.loanRepository.findFirst(keyset.and(specificationOf(loanFilterDTO)), KEYSET_SORT, limit);
+        }
+        if (after == null) {
+            return this.loanRepository.findByBookIsbnOrCustomerKeyset(
+                    Isbn.keyOf(loanFilterDTO.getIsbn()),
+                    loanFilterDTO.getCustomer(),
+                    limitRequest);
+        }
+        return this.loanRepository.findByBookIsbnOrCustomerKeysetAfter(
+                Isbn.keyOf(loanFilterDTO.getIsbn()),
                 loanFilterDTO.getCustomer(),
-                pageable);
+                loanDateOf(after),
+                after.getId(),
+                limitRequest);
     }
 
     @Override
@@ -56,11 +352,177 @@ public class LoanServiceImpl implements LoanService {
         return this.loanRepository.findByBook(book, pageable);
     }
 
+    @Override
+    public Slice<Loan> getLoansByBookSlice(Book book, Pageable pageable) {
+        return this.loanRepository.findSliceByBook(book, pageable);
+    }
+
+    @Override
+    public long countLoansByBookApproximate(Book book) {
+        return this.countCacheService.count(COUNT_REGION, "book:" + book.getId(),
+                () -> this.loanRepository.countByBook(book));
+    }
+
+    @Override
+    public List<Loan> getLoansByBookAfter(Book book, KeysetCursor after, int limit) {
+        PageRequest limitRequest = PageRequest.of(0, limit);
+        if (after == null) {
+            return this.loanRepository.findByBookKeyset(book, limitRequest);
+        }
+        return this.loanRepository.findByBookKeysetAfter(book, loanDateOf(after), after.getId(), limitRequest);
+    }
+
+    @Override
+    public long countLateLoans() {
+        LocalDate today = LocalDate.now();
+        if (this.dueIndexService.isReady()) {
+            return this.dueIndexService.countOverdue(today);
+        }
+        return this.loanRepository.countLateLoans(today.minusDays(LATE_LOAN_DAYS));
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loansDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loansDays);
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LATE_LOAN_DAYS);
         return this.loanRepository.findByLoansDateLessThanAndNotReturned(threeDaysAgo);
 
     }
+
+    /**
+     * Percorre os emprestimos atrasados em blocos de chunkSize pelo id, lendo apenas os campos
+     * do aviso. Cada bloco e uma consulta curta, entao a memoria fica limitada a um bloco e
+     * nenhuma conexao fica presa durante o processamento.
+     */
+    @Override
+    public void forEachLateLoansChunk(int chunkSize, Consumer<List<LateLoanDTO>> action) {
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LATE_LOAN_DAYS);
+        PageRequest chunkRequest = PageRequest.of(0, chunkSize);
+
+        long lastId = 0L;
+        List<LateLoanDTO> chunk;
+        do {
+            chunk = this.loanRepository.findLateLoansAfter(threeDaysAgo, lastId, chunkRequest);
+            if (!chunk.isEmpty()) {
+                action.accept(chunk);
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == chunkSize);
+    }
+
+    private void resolveIsbns(List<String> isbns, Map<Long, String> isbnByLoanId, BatchReturnReportDTO report) {
+        Map<Long, String> isbnByKey = new HashMap<>();
+        for (String isbn : isbns) {
+            long isbnKey = Isbn.keyOf(isbn);
+            if (isbnKey == Isbn.NO_KEY || isbnByKey.putIfAbsent(isbnKey, isbn) != null) {
+                report.getMissingIsbns().add(isbn);
+            }
+        }
+        if (isbnByKey.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> isbnKeyByBookId = this.bookRepository.findByIsbnKeyIn(isbnByKey.keySet()).stream()
+                .collect(Collectors.toMap(Book::getId, Book::getIsbnKey));
+        if (!isbnKeyByBookId.isEmpty()) {
+            for (ActiveLoan active : this.activeLoanRepository.findByBookIdIn(isbnKeyByBookId.keySet())) {
+                isbnByLoanId.put(active.getLoanId(), isbnByKey.remove(isbnKeyByBookId.get(active.getBookId())));
+            }
+        }
+        report.getMissingIsbns().addAll(isbnByKey.values());
+    }
+
+    private Set<Long> returnChunk(List<Long> ids) {
+        List<Loan> open = this.loanRepository.findOpenForReturn(ids);
+        if (open.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> openIds = open.stream().map(Loan::getId).collect(Collectors.toList());
+
+        open.forEach(loan -> loan.setReturned(true));
+        this.activeLoanRepository.releaseAll(openIds);
+        this.outboxService.discardPending(NotificationType.LOAN_LATE, openIds);
+        this.outboxService.enqueueAll(NotificationType.LOAN_RETURNED, open);
+        return new HashSet<>(openIds);
+    }
+
+    private <T> List<List<T>> chunksOf(Collection<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(returnChunkSize);
+        for (T value : values) {
+            chunk.add(value);
+            if (chunk.size() == returnChunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(returnChunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static <T> Set<T> distinct(List<T> values) {
+        Set<T> distinct = new LinkedHashSet<>();
+        if (values != null) {
+            values.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        return distinct;
+    }
+
+    private boolean reserve(Loan loan) {
+        try {
+            return this.activeLoanRepository.reserve(loan.getBook().getId(), loan.getId()) > 0;
+        } catch (ConcurrencyFailureException e) {
+            // outra transacao segurou a linha do livro alem do tempo de espera: o livro esta sendo emprestado
+            throw new BusinessException("Livro ja emprestado");
+        }
+    }
+
+    // o indice de vencimentos fica em memoria: so muda depois do commit, para um emprestimo
+    // desfeito nunca entrar nele (sem transacao ativa aplica na hora)
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean isUnion(LoanFilterDTO filter) {
+        return filter.getIsbn() != null && filter.getCustomer() != null;
+    }
+
+    private static Specification<Loan> specificationOf(LoanFilterDTO filter) {
+        return Specification
+                .where(filter.getIsbn() == null ? null : LoanSpecifications.bookIsbnKey(Isbn.keyOf(filter.getIsbn())))
+                .or(filter.getCustomer() == null ? null : LoanSpecifications.customer(filter.getCustomer()));
+    }
+
+    // as consultas nativas ordenam pelas colunas, nao pelos atributos da entidade
+    private static Pageable nativePageable(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String column = NATIVE_SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new BusinessException("Campo de ordenacao invalido: " + order.getProperty());
+            }
+            orders.add(order.withProperty(column));
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(orders));
+    }
+
+    private LocalDate loanDateOf(KeysetCursor cursor) {
+        try {
+            return LocalDate.parse(cursor.getKey());
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("Cursor invalido");
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+import com.apirestlibrary.libraryapi.service.EmailService;
+import com.apirestlibrary.libraryapi.service.NotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Envia os avisos em lotes de batchSize destinatarios, cada lote numa conexao smtp do pool,
+ * num pool limitado de threads. A fila do pool tambem e limitada: quando enche, quem chamou
+ * envia o lote na propria thread, segurando a leitura de novos enderecos.
+ * Metricas no actuator em /actuator/metrics/notification.mail.sent, notification.mail.failed,
+ * notification.mail.retries e notification.mail.batch.
+ */
+@Service
+@Slf4j
+public class NotificationServiceImpl implements NotificationService {
+
+    private final EmailService emailService;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter retryCounter;
+    private final Timer batchTimer;
+
+    public NotificationServiceImpl(EmailService emailService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${application.notification.batch-size:50}") int batchSize,
+                                   @Value("${application.notification.threads:4}") int threads,
+                                   @Value("${application.notification.queue-capacity:100}") int queueCapacity,
+                                   @Value("${application.notification.max-attempts:3}") int maxAttempts,
+                                   @Value("${application.notification.backoff-millis:500}") long backoffMillis) {
+
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("notification-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.sentCounter = meterRegistry.counter("notification.mail.sent");
+        this.failedCounter = meterRegistry.counter("notification.mail.failed");
+        this.retryCounter = meterRegistry.counter("notification.mail.retries");
+        this.batchTimer = meterRegistry.timer("notification.mail.batch");
+    }
+
+    @Override
+    public CompletableFuture<NotificationReportDTO> dispatch(String subject, String messageMail, Collection<String> emails) {
+        long start = System.nanoTime();
+        List<List<String>> batches = batchesOf(distinct(emails));
+
+        List<CompletableFuture<BatchResult>> results = batches.stream()
+                .map(batch -> CompletableFuture.supplyAsync(
+                        () -> batchTimer.record(() -> send(subject, messageMail, batch)), executor))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(done -> reportOf(batches, results, System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private BatchResult send(String subject, String messageMail, List<String> batch) {
+        List<String> pending = batch;
+        int sent = 0;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                emailService.sendEmails(subject, messageMail, pending);
+                sentCounter.increment(pending.size());
+                return new BatchResult(sent + pending.size(), Collections.emptyList());
+            } catch (MailException e) {
+                List<String> failed = failedRecipientsOf(e, pending);
+                sentCounter.increment(pending.size() - failed.size());
+                sent += pending.size() - failed.size();
+                pending = failed;
+
+                if (attempt >= maxAttempts || !backoff(attempt)) {
+                    log.error("Falha ao enviar aviso para {} destinatarios apos {} tentativas", pending.size(), attempt, e);
+                    failedCounter.increment(pending.size());
+                    return new BatchResult(sent, pending);
+                }
+                retryCounter.increment();
+            }
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // em falha parcial so os destinatarios nao entregues voltam para a proxima tentativa
+    private static List<String> failedRecipientsOf(MailException e, List<String> pending) {
+        if (!(e instanceof MailSendException) || ((MailSendException) e).getFailedMessages().isEmpty()) {
+            return pending;
+        }
+        List<String> failed = new ArrayList<>();
+        for (Object message : ((MailSendException) e).getFailedMessages().keySet()) {
+            if (!(message instanceof SimpleMailMessage)) {
+                return pending;
+            }
+            String[] to = ((SimpleMailMessage) message).getTo();
+            if (to != null) {
+                for (String email : to) {
+                    failed.add(email);
+                }
+            }
+        }
+        return failed;
+    }
+
+    private static Set<String> distinct(Collection<String> emails) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String email : emails) {
+            if (email != null && !email.trim().isEmpty()) {
+                distinct.add(email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return distinct;
+    }
+
+    private List<List<String>> batchesOf(Set<String> emails) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String email : emails) {
+            batch.add(email);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static NotificationReportDTO reportOf(List<List<String>> batches,
+                                                  List<CompletableFuture<BatchResult>> results,
+                                                  long elapsedNanos) {
+        int sent = 0;
+        List<String> failed = new ArrayList<>();
+        for (CompletableFuture<BatchResult> result : results) {
+            sent += result.join().sent;
+            failed.addAll(result.join().failed);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        NotificationReportDTO report = NotificationReportDTO.builder()
+                .recipients(sent + failed.size())
+                .batches(batches.size())
+                .sent(sent)
+                .failed(failed.size())
+                .failedRecipients(failed)
+                .elapsedMillis(elapsedMillis)
+                .sentPerSecond(elapsedNanos == 0 ? 0 : sent * 1_000_000_000d / elapsedNanos)
+                .build();
+        log.info("Avisos enviados: {} de {} em {} ms", sent, sent + failed.size(), elapsedMillis);
+        return report;
+    }
+
+    private static final class BatchResult {
+
+        private final int sent;
+        private final List<String> failed;
+
+        BatchResult(int sent, List<String> failed) {
+            this.sent = sent;
+            this.failed = failed;
+        }
+    }
+}
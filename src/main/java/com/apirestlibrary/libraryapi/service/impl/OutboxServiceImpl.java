@@ -0,0 +1,259 @@
+package com.apirestlibrary.libraryapi.service.impl;
+
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.entity.OutboxMessage;
+import com.apirestlibrary.libraryapi.model.repository.OutboxMessageRepository;
+import com.apirestlibrary.libraryapi.service.NotificationService;
+import com.apirestlibrary.libraryapi.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox dos avisos de emprestimo. Os avisos sao gravados na transacao de quem muda o
+ * emprestimo (ou da varredura de atrasados) e enviados depois pelo relay, fora de qualquer
+ * requisicao. Um aviso so e marcado como enviado depois do envio, entao uma queda entre os
+ * dois passos pode repetir o aviso (entrega ao menos uma vez), mas nunca perde-lo.
+ * Os avisos enviados ficam retentionDays dias para consulta e depois sao apagados pelo purgeSent.
+ * Metricas: outbox.pending, outbox.lag.seconds (idade do aviso pendente mais antigo),
+ * outbox.delivery.lag, outbox.delivered e outbox.failed.
+ */
+@Service
+@Slf4j
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxMessageRepository repository;
+    private final NotificationService notificationService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int retentionDays;
+    private final int purgeChunkSize;
+    private final Map<NotificationType, String[]> messages = new EnumMap<>(NotificationType.class);
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Timer deliveryLag;
+    private final Counter delivered;
+    private final Counter failed;
+
+    public OutboxServiceImpl(OutboxMessageRepository repository,
+                             NotificationService notificationService,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.outbox.batch-size:200}") int batchSize,
+                             @Value("${application.outbox.max-attempts:10}") int maxAttempts,
+                             @Value("${application.outbox.retention-days:30}") int retentionDays,
+                             @Value("${application.outbox.purge-chunk-size:1000}") int purgeChunkSize,
+                             @Value("${application.mail-lateloans-message}") String lateLoanMessage,
+                             @Value("${application.mail-loan-created-message:Emprestimo registrado}") String createdMessage,
+                             @Value("${application.mail-loan-returned-message:Livro devolvido}") String returnedMessage) {
+
+        this.repository = repository;
+        this.notificationService = notificationService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        this.purgeChunkSize = purgeChunkSize;
+        this.messages.put(NotificationType.LOAN_LATE, new String[]{"Livro com Empréstimo atrasado", lateLoanMessage});
+        this.messages.put(NotificationType.LOAN_CREATED, new String[]{"Empréstimo registrado", createdMessage});
+        this.messages.put(NotificationType.LOAN_RETURNED, new String[]{"Livro devolvido", returnedMessage});
+
+        meterRegistry.gauge("outbox.pending", pending);
+        meterRegistry.gauge("outbox.lag.seconds", lagSeconds);
+        this.deliveryLag = meterRegistry.timer("outbox.delivery.lag");
+        this.delivered = meterRegistry.counter("outbox.delivered");
+        this.failed = meterRegistry.counter("outbox.failed");
+    }
+
+    @Override
+    @Transactional
+    public void enqueue(NotificationType type, Loan loan) {
+        if (!hasRecipient(loan.getEmailCustomer())) {
+            return;
+        }
+        String key = OutboxMessage.keyOf(type, loan.getId());
+        if (repository.findExistingKeys(Collections.singleton(key)).isEmpty()) {
+            repository.save(messageOf(key, type, loan.getId(), loan.getEmailCustomer()));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void enqueueAll(NotificationType type, List<Loan> loans) {
+        Map<String, Loan> byKey = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            if (hasRecipient(loan.getEmailCustomer())) {
+                byKey.put(OutboxMessage.keyOf(type, loan.getId()), loan);
+            }
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        repository.findExistingKeys(byKey.keySet()).forEach(byKey::remove);
+
+        repository.saveAll(byKey.entrySet().stream()
+                .map(entry -> messageOf(entry.getKey(), type, entry.getValue().getId(), entry.getValue().getEmailCustomer()))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Transactional
+    public void enqueueLateLoans(List<LateLoanDTO> lateLoans) {
+        LocalDate today = LocalDate.now();
+        Map<String, LateLoanDTO> byKey = new LinkedHashMap<>();
+        for (LateLoanDTO lateLoan : lateLoans) {
+            if (hasRecipient(lateLoan.getEmailCustomer())) {
+                byKey.put(OutboxMessage.keyOf(NotificationType.LOAN_LATE, lateLoan.getId()) + ":" + today, lateLoan);
+            }
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        repository.findExistingKeys(byKey.keySet()).forEach(byKey::remove);
+
+        repository.saveAll(byKey.entrySet().stream()
+                .map(entry -> messageOf(entry.getKey(), NotificationType.LOAN_LATE,
+                        entry.getValue().getId(), entry.getValue().getEmailCustomer()))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Transactional
+    public void discardPending(NotificationType type, Loan loan) {
+        repository.deletePending(loan.getId(), type);
+    }
+
+    @Override
+    @Transactional
+    public void discardPending(NotificationType type, Collection<Long> loanIds) {
+        if (!loanIds.isEmpty()) {
+            repository.deletePendingIn(loanIds, type);
+        }
+    }
+
+    /**
+     * Envia os avisos pendentes em blocos pelo id. Os que falham ganham uma tentativa a mais
+     * e voltam na proxima execucao, ate maxAttempts.
+     */
+    @Override
+    public int relay() {
+        updateLag();
+
+        int sent = 0;
+        long lastId = 0L;
+        List<OutboxMessage> batch;
+        do {
+            batch = repository.findPendingAfter(lastId, maxAttempts, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+
+            Map<NotificationType, List<OutboxMessage>> byType = batch.stream()
+                    .collect(Collectors.groupingBy(OutboxMessage::getType, () -> new EnumMap<>(NotificationType.class),
+                            Collectors.toList()));
+            for (Map.Entry<NotificationType, List<OutboxMessage>> entry : byType.entrySet()) {
+                sent += send(entry.getKey(), entry.getValue());
+            }
+        } while (batch.size() == batchSize);
+
+        updateLag();
+        return sent;
+    }
+
+    /**
+     * Apaga os avisos enviados ha mais de retentionDays dias, em blocos de purgeChunkSize ids,
+     * cada bloco na sua transacao curta. Os pendentes e os que esgotaram as tentativas ficam.
+     */
+    @Override
+    public int purgeSent() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        long start = System.currentTimeMillis();
+
+        int purged = 0;
+        List<Long> ids;
+        do {
+            ids = repository.findSentBefore(before, PageRequest.of(0, purgeChunkSize));
+            if (!ids.isEmpty()) {
+                purged += repository.deleteByIdIn(ids);
+            }
+        } while (ids.size() == purgeChunkSize);
+
+        log.info("Limpeza do outbox finalizada: {} avisos enviados antes de {} em {} ms",
+                purged, before, System.currentTimeMillis() - start);
+        return purged;
+    }
+
+    private int send(NotificationType type, List<OutboxMessage> outboxMessages) {
+        String[] message = messages.get(type);
+        NotificationReportDTO report = notificationService.dispatch(message[0], message[1],
+                outboxMessages.stream().map(OutboxMessage::getRecipient).collect(Collectors.toList())).join();
+
+        Set<String> failedRecipients = new HashSet<>(report.getFailedRecipients());
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxMessage outboxMessage : outboxMessages) {
+            if (failedRecipients.contains(outboxMessage.getRecipient())) {
+                failedIds.add(outboxMessage.getId());
+            } else {
+                sentIds.add(outboxMessage.getId());
+                deliveryLag.record(Duration.between(outboxMessage.getCreatedAt(), now));
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            repository.markSent(sentIds, now);
+            delivered.increment(sentIds.size());
+        }
+        if (!failedIds.isEmpty()) {
+            repository.markFailed(failedIds);
+            failed.increment(failedIds.size());
+            log.warn("{} avisos {} continuam pendentes no outbox", failedIds.size(), type);
+        }
+        return sentIds.size();
+    }
+
+    private void updateLag() {
+        pending.set(repository.countPending(maxAttempts));
+        LocalDateTime oldest = repository.findOldestPendingCreatedAt(maxAttempts);
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).getSeconds());
+    }
+
+    private static boolean hasRecipient(String email) {
+        return email != null && !email.trim().isEmpty();
+    }
+
+    private static OutboxMessage messageOf(String key, NotificationType type, Long loanId, String recipient) {
+        return OutboxMessage.builder()
+                .messageKey(key)
+                .type(type)
+                .loanId(loanId)
+                .recipient(recipient.trim().toLowerCase(Locale.ROOT))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,13 +1,30 @@
 package com.apirestlibrary.libraryapi;
 
+import com.apirestlibrary.libraryapi.config.HibernateCacheEndpoint;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 class LibraryApiApplicationTests {
 
+	@Autowired
+	HibernateCacheEndpoint hibernateCacheEndpoint;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	void hibernateCacheEndpointListsRegions() {
+		Map<String, Object> regions = (Map<String, Object>) hibernateCacheEndpoint.regions().get("regions");
+
+		assertThat(regions).containsKeys("book", "loan");
+	}
+
 }
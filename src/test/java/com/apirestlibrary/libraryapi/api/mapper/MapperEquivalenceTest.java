@@ -0,0 +1,86 @@
+package com.apirestlibrary.libraryapi.api.mapper;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere que os mappers gerados produzem o mesmo resultado que o ModelMapper produzia nos controllers.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class MapperEquivalenceTest {
+
+    ModelMapper modelMapper = new ModelMapper();
+    BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+    LoanMapper loanMapper = Mappers.getMapper(LoanMapper.class);
+
+    @Test
+    @DisplayName("Deve converter livro em dto como o ModelMapper")
+    public void bookToDTOTest(){
+
+        Book book = createBook();
+
+        BookDTO dto = bookMapper.toDTO(book);
+
+        assertThat(dto).isEqualTo(modelMapper.map(book, BookDTO.class));
+        assertThat(dto.getIsbn()).isEqualTo("978-85-0001");
+    }
+
+    @Test
+    @DisplayName("Deve converter dto em livro como o ModelMapper sem preencher campos internos")
+    public void dtoToBookTest(){
+
+        BookDTO dto = BookDTO.builder().id(1l).title("Dom Casmurro").author("Machado de Assis").isbn("978-85-0001").build();
+
+        Book book = bookMapper.toEntity(dto);
+
+        assertThat(book).isEqualTo(modelMapper.map(dto, Book.class));
+        assertThat(book.getLoans()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve converter filtro vazio em livro com todos os campos nulos")
+    public void emptyFilterToBookTest(){
+
+        Book filter = bookMapper.toEntity(new BookDTO());
+
+        assertThat(filter).isEqualTo(modelMapper.map(new BookDTO(), Book.class));
+        assertThat(filter.getTitle()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve converter emprestimo em dto com o livro aninhado em bookDTO")
+    public void loanToDTOTest(){
+
+        Book book = createBook();
+        Loan loan = Loan.builder().id(2l).book(book).customer("silva").emailCustomer("silva@email.com")
+                .loanDate(LocalDate.now()).returned(false).build();
+
+        LoanDTO expected = modelMapper.map(loan, LoanDTO.class);
+        expected.setBookDTO(modelMapper.map(book, BookDTO.class));
+
+        LoanDTO dto = loanMapper.toDTO(loan);
+
+        assertThat(dto).isEqualTo(expected);
+        assertThat(dto.getIsbn()).isNull();
+        assertThat(dto.getBookDTO().getId()).isEqualTo(1l);
+    }
+
+    private Book createBook() {
+        return Book.builder().id(1l).title("Dom Casmurro").author("Machado de Assis").isbn("978-85-0001")
+                .isbnKey(9788500010l).build();
+    }
+}
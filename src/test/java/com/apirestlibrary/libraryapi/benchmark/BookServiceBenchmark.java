@@ -0,0 +1,59 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookServiceImpl.find com o indice em memoria carregado: filtro seletivo (titulo), filtro que
+ * casa com um quarto dos livros (autor) e a listagem sem filtro ordenada por titulo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    private BookService bookService;
+    private Pageable page;
+    private Pageable sortedPage;
+
+    @Setup
+    public void setUp(LibraryDataset dataset) {
+        bookService = dataset.bean(BookService.class);
+        page = PageRequest.of(0, 20);
+        sortedPage = PageRequest.of(1, 20, Sort.by("title"));
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        return bookService.find(Book.builder().title("livro 12").build(), page);
+    }
+
+    @Benchmark
+    public Page<Book> findByAuthor() {
+        return bookService.find(Book.builder().author("machado").build(), page);
+    }
+
+    @Benchmark
+    public Page<Book> findAllSorted() {
+        return bookService.find(new Book(), sortedPage);
+    }
+}
@@ -0,0 +1,97 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.LibraryApiApplication;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.BookIndexService;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sobe a aplicacao numa porta aleatoria sobre o H2 em memoria e grava books livros, cada um com
+ * um emprestimo ja devolvido. Os livros ficam livres para o LoanServiceBenchmark emprestar.
+ */
+@State(Scope.Benchmark)
+public class LibraryDataset {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    static final String[] AUTHORS = {"Machado de Assis", "Clarice Lispector", "Jorge Amado", "Cecilia Meireles"};
+
+    @Param("10000")
+    public int books;
+
+    ConfigurableApplicationContext context;
+
+    List<Book> seeded;
+
+    @Setup
+    public void setUp() {
+        context = start(0);
+        seeded = seed(context, books);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // porta 0 escolhe uma porta livre
+    static ConfigurableApplicationContext start(int port) {
+        // o restart do devtools chamaria de novo o main de quem subiu a aplicacao
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // como argumentos de linha de comando para valerem sobre o application.properties
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                .profiles("test")
+                .run("--server.port=" + port,
+                        "--spring.boot.admin.client.enabled=false",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--logging.file=",
+                        "--logging.level.root=WARN",
+                        // o relay do outbox mandaria email para o smtp configurado
+                        "--application.outbox.relay-delay-millis=86400000");
+    }
+
+    static List<Book> seed(ConfigurableApplicationContext context, int books) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        LoanRepository loanRepository = context.getBean(LoanRepository.class);
+
+        List<Book> seeded = new ArrayList<>(books);
+        for (int from = 0; from < books; from += CHUNK_SIZE) {
+            List<Book> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int i = from; i < Math.min(from + CHUNK_SIZE, books); i++) {
+                chunk.add(Book.builder()
+                        .title("Livro " + i)
+                        .author(AUTHORS[i % AUTHORS.length])
+                        .isbn(String.valueOf(100000 + i))
+                        .build());
+            }
+            List<Book> saved = bookRepository.saveAll(chunk);
+            List<Loan> loans = new ArrayList<>(saved.size());
+            for (Book book : saved) {
+                loans.add(Loan.builder().book(book).customer("cliente " + book.getId())
+                        .emailCustomer("cliente" + book.getId() + "@email.com")
+                        .loanDate(LocalDate.now().minusDays(30)).returned(true).build());
+            }
+            loanRepository.saveAll(loans);
+            seeded.addAll(saved);
+        }
+        context.getBean(BookIndexService.class).rebuild();
+        return seeded;
+    }
+}
@@ -0,0 +1,67 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cliente http minimo do LoadTest. Le sempre a resposta inteira para a conexao voltar ao
+ * keep-alive do HttpURLConnection; status diferente do esperado vira IOException.
+ */
+class LoadClient {
+
+    private final String baseUrl;
+
+    LoadClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    String get(String path) throws IOException {
+        return send("GET", path, null, HttpURLConnection.HTTP_OK);
+    }
+
+    String post(String path, String json, int expectedStatus) throws IOException {
+        return send("POST", path, json, expectedStatus);
+    }
+
+    String put(String path, String json) throws IOException {
+        return send("PUT", path, json, HttpURLConnection.HTTP_OK);
+    }
+
+    private String send(String method, String path, String json, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        String body = read(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        if (status != expectedStatus) {
+            throw new IOException(method + " " + path + " respondeu " + status + ": " + body);
+        }
+        return body;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = stream.read(buffer)) != -1; ) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resultado do LoadTest: uma linha por cenario com vazao e percentis em ms, gravada em
+ * report.txt e report.json, mais a distribuicao completa de cada cenario em &lt;cenario&gt;.hgrm
+ * (formato do HdrHistogram, abre no plotter em hdrhistogram.github.io/HdrHistogram/plotFiles.html).
+ */
+class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<String, Object> settings;
+    private final long durationSeconds;
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+
+    LoadReport(Map<String, Object> settings, long durationSeconds) {
+        this.settings = settings;
+        this.durationSeconds = durationSeconds;
+    }
+
+    void add(LoadScenario scenario) {
+        Histogram latencies = scenario.latencies();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("scenario", scenario.getName());
+        row.put("targetRate", scenario.getRate());
+        row.put("requests", latencies.getTotalCount());
+        row.put("throughput", round((double) latencies.getTotalCount() / durationSeconds));
+        row.put("errors", scenario.getErrors());
+        row.put("skipped", scenario.getSkipped());
+        row.put("p50", millis(latencies.getValueAtPercentile(50)));
+        row.put("p90", millis(latencies.getValueAtPercentile(90)));
+        row.put("p99", millis(latencies.getValueAtPercentile(99)));
+        row.put("p999", millis(latencies.getValueAtPercentile(99.9)));
+        row.put("max", millis(latencies.getMaxValue()));
+        rows.add(row);
+        histograms.put(scenario.getName(), latencies);
+    }
+
+    String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append("Configuracao: ").append(settings).append('\n');
+        text.append(String.format(Locale.ROOT, "%-14s %8s %10s %10s %7s %8s %9s %9s %9s %9s %9s%n",
+                "cenario", "alvo/s", "requisicoes", "vazao/s", "erros", "pulados",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map<String, Object> row : rows) {
+            text.append(String.format(Locale.ROOT, "%-14s %8s %10s %10s %7s %8s %9s %9s %9s %9s %9s%n",
+                    row.get("scenario"), row.get("targetRate"), row.get("requests"), row.get("throughput"),
+                    row.get("errors"), row.get("skipped"),
+                    row.get("p50"), row.get("p90"), row.get("p99"), row.get("p999"), row.get("max")));
+        }
+        return text.toString();
+    }
+
+    void write(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Files.write(new File(directory, "report.txt").toPath(), toText().getBytes(StandardCharsets.UTF_8));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", settings);
+        json.put("durationSeconds", durationSeconds);
+        json.put("scenarios", rows);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(new File(directory, "report.json"), json);
+
+        for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+            try (PrintStream out = new PrintStream(new File(directory, histogram.getKey() + ".hgrm"), "UTF-8")) {
+                histogram.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return round(micros / MICROS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
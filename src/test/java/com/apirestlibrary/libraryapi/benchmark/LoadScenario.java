@@ -0,0 +1,107 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Um endpoint sob carga em modelo aberto: as requisicoes chegam a uma taxa fixa, sem esperar as
+ * anteriores terminarem. A latencia e medida desde o instante em que a requisicao deveria ter
+ * saido, entao a espera por uma conexao livre tambem conta (sem coordinated omission).
+ */
+@Slf4j
+class LoadScenario {
+
+    private static final int LOGGED_ERRORS = 5;
+
+    interface Request {
+
+        /**
+         * Envia a requisicao de numero sequence; retorna false quando nao ha o que enviar
+         * (sem livro livre ou emprestimo aberto). Status inesperado vira IOException.
+         */
+        boolean send(long sequence) throws IOException;
+    }
+
+    private final String name;
+    private final int rate;
+    private final Request request;
+
+    // latencias em microssegundos, so das requisicoes agendadas depois do aquecimento
+    private final Recorder recorder = new Recorder(3);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    LoadScenario(String name, int rate, Request request) {
+        this.name = name;
+        this.rate = rate;
+        this.request = request;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long getSkipped() {
+        return skipped.get();
+    }
+
+    Histogram latencies() {
+        return recorder.getIntervalHistogram();
+    }
+
+    /**
+     * Agenda rate requisicoes por segundo de start ate end (nanoTime) no executor;
+     * as agendadas antes de measureFrom sao aquecimento e nao entram no histograma.
+     */
+    void run(Executor executor, long start, long measureFrom, long end) {
+        if (rate <= 0) {
+            return;
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (long sequence = 0; ; sequence++) {
+            long intended = start + sequence * interval;
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long number = sequence;
+            executor.execute(() -> call(number, intended, intended >= measureFrom));
+        }
+    }
+
+    private void call(long sequence, long intended, boolean measured) {
+        try {
+            if (!request.send(sequence)) {
+                if (measured) {
+                    skipped.incrementAndGet();
+                }
+                return;
+            }
+            if (measured) {
+                recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (measured && errors.incrementAndGet() <= LOGGED_ERRORS) {
+                log.warn("Falha em {}: {}", name, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.service.LoanService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teste de carga dos controllers: sobe a aplicacao sobre o H2, grava o acervo e dispara ao mesmo
+ * tempo, cada um na sua taxa, GET /api/books, POST /api/loans e PUT /api/loans/{id}.
+ * Os emprestimos criados pelo POST alimentam o PUT, que devolve os livros para o POST,
+ * entao a carga se sustenta por quanto tempo for preciso.
+ *
+ * mvn -Ploadtest verify -Dloadtest.args="rate.books=500 duration-seconds=120"
+ * Os parametros (ver DEFAULTS) tambem podem vir como -Dloadtest.&lt;nome&gt; ao rodar a classe direto.
+ * O relatorio fica em output: report.txt, report.json e um .hgrm por cenario.
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final String[][] DEFAULTS = {
+            {"books", "10000"},
+            {"open-loans", "2000"},
+            {"port", "0"},
+            {"connections", "64"},
+            {"warmup-seconds", "10"},
+            {"duration-seconds", "60"},
+            {"rate.books", "200"},
+            {"rate.loans", "50"},
+            {"rate.returns", "50"},
+            {"output", "target/loadtest"}
+    };
+
+    private static final String[] AUTHOR_FILTERS = {"machado", "clarice", "jorge", "cecilia"};
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = settingsOf(args);
+        int books = intSetting(settings, "books");
+        int openLoans = Math.min(intSetting(settings, "open-loans"), books);
+        int connections = intSetting(settings, "connections");
+        long warmupSeconds = intSetting(settings, "warmup-seconds");
+        long durationSeconds = intSetting(settings, "duration-seconds");
+
+        // o HttpURLConnection so mantem 5 conexoes em keep-alive por host sem isso
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+
+        ConfigurableApplicationContext context = LibraryDataset.start(intSetting(settings, "port"));
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            List<Book> seeded = LibraryDataset.seed(context, books);
+
+            Queue<String> freeIsbns = new ConcurrentLinkedQueue<>();
+            Queue<Loan> activeLoans = new ConcurrentLinkedQueue<>();
+            List<Loan> loans = new ArrayList<>(openLoans);
+            for (Book book : seeded.subList(0, openLoans)) {
+                loans.add(Loan.builder().book(book).customer("carga").loanDate(LocalDate.now()).build());
+            }
+            activeLoans.addAll(context.getBean(LoanService.class).saveAll(loans));
+            seeded.subList(openLoans, seeded.size()).forEach(book -> freeIsbns.add(book.getIsbn()));
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadClient client = new LoadClient("http://localhost:" + port);
+
+            List<LoadScenario> scenarios = Arrays.asList(
+                    new LoadScenario("books", intSetting(settings, "rate.books"), sequence -> {
+                        client.get("/api/books?author=" + AUTHOR_FILTERS[(int) (sequence % AUTHOR_FILTERS.length)]
+                                + "&page=" + (sequence % 5) + "&size=20");
+                        return true;
+                    }),
+                    new LoadScenario("loans", intSetting(settings, "rate.loans"), sequence -> {
+                        String isbn = freeIsbns.poll();
+                        if (isbn == null) {
+                            return false;
+                        }
+                        try {
+                            String id = client.post("/api/loans",
+                                    "{\"isbn\":\"" + isbn + "\",\"customer\":\"carga " + sequence + "\"}", 201);
+                            activeLoans.add(Loan.builder().id(Long.valueOf(id.trim()))
+                                    .book(Book.builder().isbn(isbn).build()).build());
+                            return true;
+                        } catch (Exception e) {
+                            freeIsbns.add(isbn);
+                            throw e;
+                        }
+                    }),
+                    new LoadScenario("returns", intSetting(settings, "rate.returns"), sequence -> {
+                        Loan loan = activeLoans.poll();
+                        if (loan == null) {
+                            return false;
+                        }
+                        try {
+                            client.put("/api/loans/" + loan.getId(), "{\"returned\":true}");
+                            freeIsbns.add(loan.getBook().getIsbn());
+                            return true;
+                        } catch (Exception e) {
+                            activeLoans.add(loan);
+                            throw e;
+                        }
+                    }));
+
+            log.warn("Carga por {}s (+{}s de aquecimento) em http://localhost:{} com {} livros",
+                    durationSeconds, warmupSeconds, port, books);
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            List<Thread> dispatchers = new ArrayList<>();
+            for (LoadScenario scenario : scenarios) {
+                Thread dispatcher = new Thread(() -> scenario.run(executor, start, measureFrom, end),
+                        "load-" + scenario.getName());
+                dispatcher.start();
+                dispatchers.add(dispatcher);
+            }
+            for (Thread dispatcher : dispatchers) {
+                dispatcher.join();
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("Requisicoes ainda pendentes depois de 60s; ficam fora do relatorio");
+            }
+
+            LoadReport report = new LoadReport(reportSettingsOf(settings), durationSeconds);
+            scenarios.forEach(report::add);
+            report.write(new File(settings.getProperty("output")));
+            System.out.print(report.toText());
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    // DEFAULTS < -Dloadtest.<nome> < argumentos nome=valor
+    private static Properties settingsOf(String[] args) {
+        Properties settings = new Properties();
+        for (String[] setting : DEFAULTS) {
+            settings.setProperty(setting[0], System.getProperty("loadtest." + setting[0], setting[1]));
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0 || !settings.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Parametro de carga invalido: " + arg);
+            }
+            settings.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return settings;
+    }
+
+    private static Map<String, Object> reportSettingsOf(Properties settings) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (String[] setting : DEFAULTS) {
+            report.put(setting[0], settings.getProperty(setting[0]));
+        }
+        return report;
+    }
+
+    private static int intSetting(Properties settings, String name) {
+        return Integer.parseInt(settings.getProperty(name));
+    }
+}
@@ -0,0 +1,69 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanServiceImpl.save em lotes de BATCH emprestimos, cada um de um livro livre diferente.
+ * O tempo reportado e o do lote inteiro; ao fim de cada iteracao os emprestimos sao
+ * devolvidos pelo returnAll para liberar os livros para a proxima.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = LoanServiceBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = LoanServiceBenchmark.BATCH)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    static final int BATCH = 1000;
+
+    private LoanService loanService;
+    private List<Book> books;
+    private List<Long> created;
+    private int next;
+
+    @Setup
+    public void setUp(LibraryDataset dataset) {
+        if (dataset.seeded.size() < BATCH) {
+            throw new IllegalStateException("O LoanServiceBenchmark precisa de pelo menos " + BATCH + " livros");
+        }
+        loanService = dataset.bean(LoanService.class);
+        books = dataset.seeded;
+        created = new ArrayList<>(BATCH);
+    }
+
+    @TearDown(Level.Iteration)
+    public void returnLoans() {
+        loanService.returnAll(created, null);
+        created.clear();
+        next = 0;
+    }
+
+    @Benchmark
+    public Loan save() {
+        Book book = books.get(next++);
+        Loan loan = loanService.save(Loan.builder().book(book).customer("benchmark")
+                .emailCustomer("benchmark@email.com").loanDate(LocalDate.now()).build());
+        created.add(loan.getId());
+        return loan;
+    }
+}
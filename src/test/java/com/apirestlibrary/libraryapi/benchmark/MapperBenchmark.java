@@ -0,0 +1,90 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
+import com.apirestlibrary.libraryapi.api.mapper.BookMapper;
+import com.apirestlibrary.libraryapi.api.mapper.LoanMapper;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por chamada das conversoes dos controllers: ModelMapper (como era) contra os mappers gerados.
+ * Rodar com o profiler de gc para ver a alocacao por operacao (gc.alloc.rate.norm), depois de mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main MapperBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private Book book;
+    private BookDTO bookDTO;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = Mappers.getMapper(BookMapper.class);
+        loanMapper = Mappers.getMapper(LoanMapper.class);
+
+        book = Book.builder().id(1l).title("Dom Casmurro").author("Machado de Assis").isbn("978-85-0001").build();
+        bookDTO = BookDTO.builder().title("Dom Casmurro").author("Machado de Assis").isbn("978-85-0001").build();
+        loan = Loan.builder().id(2l).book(book).customer("silva").emailCustomer("silva@email.com")
+                .loanDate(LocalDate.now()).returned(false).build();
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOModelMapper() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOGenerated() {
+        return bookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public Book dtoToBookModelMapper() {
+        return modelMapper.map(bookDTO, Book.class);
+    }
+
+    @Benchmark
+    public Book dtoToBookGenerated() {
+        return bookMapper.toEntity(bookDTO);
+    }
+
+    @Benchmark
+    public LoanDTO loanToDTOModelMapper() {
+        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+        loanDTO.setBookDTO(modelMapper.map(loan.getBook(), BookDTO.class));
+        return loanDTO;
+    }
+
+    @Benchmark
+    public LoanDTO loanToDTOGenerated() {
+        return loanMapper.toDTO(loan);
+    }
+}
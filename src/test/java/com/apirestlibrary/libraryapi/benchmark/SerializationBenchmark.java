@@ -0,0 +1,99 @@
+package com.apirestlibrary.libraryapi.benchmark;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
+import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
+import com.apirestlibrary.libraryapi.api.mapper.BookMapper;
+import com.apirestlibrary.libraryapi.api.mapper.LoanMapper;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.LoanService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Conversao para dto e serializacao das paginas devolvidas por GET /api/books e GET /api/loans,
+ * com o ObjectMapper configurado pelo spring e entidades lidas do H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private Page<Book> books;
+    private Page<Loan> loans;
+    private Page<BookDTO> bookPage;
+    private Page<LoanDTO> loanPage;
+
+    @Setup
+    public void setUp(LibraryDataset dataset) {
+        objectMapper = dataset.bean(ObjectMapper.class);
+        bookMapper = dataset.bean(BookMapper.class);
+        loanMapper = dataset.bean(LoanMapper.class);
+
+        books = dataset.bean(BookService.class).find(new Book(), PageRequest.of(0, pageSize));
+        loans = dataset.bean(LoanService.class).find(new LoanFilterDTO(), PageRequest.of(0, pageSize));
+        bookPage = toBookPage();
+        loanPage = toLoanPage();
+    }
+
+    @Benchmark
+    public Page<BookDTO> mapBookPage() {
+        return toBookPage();
+    }
+
+    @Benchmark
+    public Page<LoanDTO> mapLoanPage() {
+        return toLoanPage();
+    }
+
+    @Benchmark
+    public byte[] serializeBookPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookPage);
+    }
+
+    @Benchmark
+    public byte[] serializeLoanPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loanPage);
+    }
+
+    // mesmo caminho dos controllers: entidades -> dtos -> PageImpl
+    private Page<BookDTO> toBookPage() {
+        List<BookDTO> content = books.getContent().stream().map(bookMapper::toDTO).collect(Collectors.toList());
+        return new PageImpl<>(content, books.getPageable(), books.getTotalElements());
+    }
+
+    private Page<LoanDTO> toLoanPage() {
+        List<LoanDTO> content = loans.getContent().stream().map(loanMapper::toDTO).collect(Collectors.toList());
+        return new PageImpl<>(content, loans.getPageable(), loans.getTotalElements());
+    }
+}
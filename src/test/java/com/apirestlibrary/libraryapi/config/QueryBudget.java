@@ -0,0 +1,46 @@
+package com.apirestlibrary.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mede o sql executado na thread atual por um trecho do teste (por exemplo um mvc.perform)
+ * e confere o orcamento de statements e linhas.
+ */
+public final class QueryBudget {
+
+    private final SqlStatistics.Snapshot used;
+
+    private QueryBudget(SqlStatistics.Snapshot used) {
+        this.used = used;
+    }
+
+    public static QueryBudget measure(Action action) throws Exception {
+        SqlStatistics.Snapshot start = SqlStatistics.snapshot();
+        action.run();
+        return new QueryBudget(start.elapsed());
+    }
+
+    public QueryBudget hasStatements(long expected) {
+        assertThat(used.getStatements()).as("sql executado: %s", used).isEqualTo(expected);
+        return this;
+    }
+
+    public QueryBudget hasStatementsAtMost(long max) {
+        assertThat(used.getStatements()).as("sql executado: %s", used).isLessThanOrEqualTo(max);
+        return this;
+    }
+
+    public QueryBudget hasRowsAtMost(long max) {
+        assertThat(used.getRows()).as("sql executado: %s", used).isLessThanOrEqualTo(max);
+        return this;
+    }
+
+    public SqlStatistics.Snapshot getUsed() {
+        return used;
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,133 @@
+package com.apirestlibrary.libraryapi.controller;
+
+import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.config.QueryBudget;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Orcamento de sql dos endpoints de livros com o cache de segundo nivel vazio.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BookControllerQueryBudgetTest {
+
+    static String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        book = bookService.save(Book.builder().author("autor").title("orcamento").isbn("9900").build());
+        for (int i = 0; i < 5; i++) {
+            loanRepository.save(Loan.builder().book(book).customer("silva").loanDate(LocalDate.now()).returned(true).build());
+        }
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteAll();
+        bookRepository.findAll().forEach(bookService::delete);
+    }
+
+    @Test
+    @DisplayName("Deve criar um livro sem carregar colecoes ao logar a entidade")
+    public void createBudgetTest() throws Exception {
+
+        String json = new ObjectMapper().writeValueAsString(
+                BookDTO.builder().author("autor").title("novo").isbn("9901").build());
+
+        QueryBudget.measure(() -> mvc.perform(MockMvcRequestBuilders.post(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isCreated()))
+                .hasStatements(1)
+                .hasRowsAtMost(1);
+    }
+
+    @Test
+    @DisplayName("Deve buscar um livro com emprestimos sem ler os emprestimos")
+    public void getBudgetTest() throws Exception {
+
+        QueryBudget.measure(() -> mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/" + book.getId())
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()))
+                .hasStatements(1)
+                .hasRowsAtMost(1);
+
+        assertThat(meterRegistry.find("sql.request.statements").tag("uri", "/api/books/{id}").summary()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve listar livros filtrados pelo indice com um unico select")
+    public void findBudgetTest() throws Exception {
+
+        QueryBudget.measure(() -> mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "?author=autor&page=0&size=5")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()))
+                .hasStatements(1)
+                .hasRowsAtMost(1);
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro com a leitura e o update")
+    public void updateBudgetTest() throws Exception {
+
+        String json = new ObjectMapper().writeValueAsString(
+                BookDTO.builder().author("outro autor").title("outro titulo").isbn("9900").build());
+
+        QueryBudget.measure(() -> mvc.perform(MockMvcRequestBuilders.put(BOOK_API + "/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk()))
+                .hasStatements(2)
+                .hasRowsAtMost(2);
+    }
+}
@@ -1,10 +1,21 @@
 package com.apirestlibrary.libraryapi.controller;
 
 
+import com.apirestlibrary.libraryapi.api.dto.AutocompleteField;
 import com.apirestlibrary.libraryapi.api.dto.BookDTO;
+import com.apirestlibrary.libraryapi.api.dto.BookImportErrorDTO;
+import com.apirestlibrary.libraryapi.api.dto.BookImportFormat;
+import com.apirestlibrary.libraryapi.api.dto.BookImportReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.service.AutocompleteService;
+import com.apirestlibrary.libraryapi.service.BookImportService;
 import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.ExportService;
+import com.apirestlibrary.libraryapi.service.LoanArchiveService;
 import com.apirestlibrary.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -19,6 +30,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -26,10 +38,15 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.InputStream;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -50,6 +67,18 @@ public class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    BookImportService bookImportService;
+
+    @MockBean
+    ExportService exportService;
+
+    @MockBean
+    AutocompleteService autocompleteService;
+
+    @MockBean
+    LoanArchiveService loanArchiveService;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso")
     public void createBookTest() throws Exception {
@@ -307,6 +336,198 @@ public class BookControllerTest {
 
 
 
+    @Test
+    @DisplayName("Deve buscar livros em fatias sem o total quando a contagem for desligada")
+    public void findBookSliceWithoutCount() throws Exception {
+
+        Book book = Book.builder().id(1l).title("a").author("autor").isbn("001").build();
+
+        BDDMockito.given(service.findSlice(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 10), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=autor&page=0&size=10&count=NONE"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("last").value(false))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros com o total aproximado em cache")
+    public void findBookWithApproximateCount() throws Exception {
+
+        Book book = Book.builder().id(1l).title("a").author("autor").isbn("001").build();
+
+        BDDMockito.given(service.findSlice(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+        BDDMockito.given(service.countApproximate(Mockito.any(Book.class))).willReturn(50l);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?page=0&size=1&count=APPROXIMATE"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("totalElements").value(50));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros paginando por cursor")
+    public void findBookAfterCursor() throws Exception {
+
+        Book first = Book.builder().id(1l).title("a").author("autor").isbn("001").build();
+        Book second = Book.builder().id(2l).title("b").author("autor").isbn("002").build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.isNull(), Mockito.eq(2)))
+                .willReturn(Arrays.asList(first, second));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=autor&after=&size=1"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("nextCursor").value(KeysetCursor.of("a", 1l).encode()));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro quando o cursor informado for invalido")
+    public void findBookAfterInvalidCursor() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?after=invalido&size=1"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Cursor invalido"));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em massa via csv e retornar o relatorio")
+    public void importBooksTest() throws Exception {
+
+        BookImportReportDTO report = BookImportReportDTO.builder()
+                .imported(1)
+                .rejected(1)
+                .errors(Arrays.asList(BookImportErrorDTO.builder().line(3l).isbn("001").error("Isbn duplicada no arquivo").build()))
+                .build();
+
+        BDDMockito.given(bookImportService.importBooks(Mockito.any(InputStream.class), Mockito.eq(BookImportFormat.CSV)))
+                .willReturn(report);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("text/csv;charset=UTF-8")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("title,author,isbn\nLivro,Autor,001\nOutro,Autor,001\n");
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("errors[0].line").value(3))
+                .andExpect(jsonPath("errors[0].error").value("Isbn duplicada no arquivo"));
+    }
+
+    @Test
+    @DisplayName("Deve recusar importacao em formato nao suportado")
+    public void importBooksUnsupportedFormatTest() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<books/>");
+
+        mvc.perform(request)
+                .andExpect(status().isUnsupportedMediaType());
+
+        Mockito.verify(bookImportService, Mockito.never()).importBooks(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve exportar os livros de uma faixa de ids em csv")
+    public void exportBooksTest() throws Exception {
+
+        BDDMockito.given(exportService.exportBooks(Mockito.any(Writer.class), Mockito.eq(ExportFormat.CSV), Mockito.eq(1l), Mockito.eq(100l)))
+                .willAnswer(invocation -> {
+                    invocation.getArgument(0, Writer.class).write("id,title,author,isbn\n1,Livro,Autor,001\n");
+                    return 1l;
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/export?format=csv&fromId=1&toId=100"));
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=books.csv"))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,title,author,isbn\n1,Livro,Autor,001\n"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao exportar livros em formato nao suportado")
+    public void exportBooksInvalidFormatTest() throws Exception {
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Formato de exportacao nao suportado: xml"));
+    }
+
+    @Test
+    @DisplayName("Deve sugerir autores a partir de um prefixo")
+    public void autocompleteTest() throws Exception {
+
+        BDDMockito.given(autocompleteService.suggest(AutocompleteField.AUTHOR, "mach", 5))
+                .willReturn(Arrays.asList("Machado de Assis"));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/autocomplete?prefix=mach&field=AUTHOR&limit=5"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0]").value("Machado de Assis"));
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve buscar os emprestimos do livro incluindo o historico arquivado")
+    public void bookLoansWithHistoryTest() throws Exception {
+
+        Book book = Book.builder().id(1l).title("a").author("autor").isbn("001").build();
+        Loan archived = Loan.builder().id(7l).book(book).customer("fulano")
+                .loanDate(LocalDate.now().minusYears(2)).returned(true).build();
+
+        BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given(loanArchiveService.getLoansByBookWithHistory(Mockito.eq(book), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(archived), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1/loans?page=0&size=10&history=true"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(7))
+                .andExpect(jsonPath("totalElements").value(1));
+
+        Mockito.verify(loanService, Mockito.never()).getLoansByBook(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
     private BookDTO createNewBook() {
         return BookDTO.builder()
                 .author("Gabriel Nogueira")
@@ -0,0 +1,119 @@
+package com.apirestlibrary.libraryapi.controller;
+
+import com.apirestlibrary.libraryapi.config.QueryBudget;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Orcamento de sql das listagens de emprestimos com o cache de segundo nivel vazio:
+ * o numero de statements nao pode crescer com a quantidade de livros da pagina.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class LoanControllerQueryBudgetTest {
+
+    private static final int BOOKS = 8;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp(){
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = bookRepository.save(Book.builder().author("autor").title("livro " + i).isbn(String.valueOf(9800 + i)).build());
+            loanRepository.save(Loan.builder().book(book).customer("silva").loanDate(LocalDate.now().minusDays(i)).build());
+            books.add(book);
+        }
+        for (int i = 0; i < 5; i++) {
+            loanRepository.save(Loan.builder().book(books.get(0)).customer("costa").loanDate(LocalDate.now().minusDays(10 + i)).returned(true).build());
+        }
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos filtrados com o select e o count")
+    public void findLoansStatementCountTest() throws Exception {
+
+        assertStatements(2, "/api/loans?customer=silva&page=0&size=5", 5);
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos sem total com um unico select")
+    public void findLoansSliceStatementCountTest() throws Exception {
+
+        assertStatements(1, "/api/loans?customer=silva&page=0&size=5&count=NONE", 5);
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos por cursor com um unico select")
+    public void findLoansAfterStatementCountTest() throws Exception {
+
+        assertStatements(1, "/api/loans?customer=silva&after=&size=10", BOOKS);
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos por isbn ou cliente lendo os livros num unico select")
+    public void findLoansUnionStatementCountTest() throws Exception {
+
+        assertStatements(3, "/api/loans?customer=silva&isbn=9800&page=0&size=5", 5);
+    }
+
+    @Test
+    @DisplayName("Deve listar os emprestimos de um livro com o livro, o select e o count")
+    public void bookLoansStatementCountTest() throws Exception {
+
+        assertStatements(3, "/api/books/" + books.get(0).getId() + "/loans?page=0&size=5", 5);
+    }
+
+    private void assertStatements(long expected, String url, int expectedItems) throws Exception {
+        entityManagerFactory.getCache().evictAll();
+
+        QueryBudget.measure(() -> mvc.perform(MockMvcRequestBuilders.get(url).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(expectedItems))))
+                .hasStatements(expected)
+                .hasRowsAtMost(2 * expectedItems + 1);
+    }
+}
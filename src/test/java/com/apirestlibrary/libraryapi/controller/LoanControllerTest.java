@@ -1,12 +1,20 @@
 package com.apirestlibrary.libraryapi.controller;
 
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanItemDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
 import com.apirestlibrary.libraryapi.api.dto.ReturnedLoanDTO;
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
 import com.apirestlibrary.libraryapi.model.entity.Book;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
 import com.apirestlibrary.libraryapi.service.BookService;
+import com.apirestlibrary.libraryapi.service.ExportService;
 import com.apirestlibrary.libraryapi.service.LoanService;
 import com.apirestlibrary.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -33,6 +41,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -55,6 +64,9 @@ public class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("Deve realizar um empréstimo")
     public void creatLoanTest() throws Exception {
@@ -224,4 +236,156 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
 
     }
+
+    @Test
+    @DisplayName("Deve realizar emprestimos em lote informando o resultado de cada isbn")
+    public void createBatchLoanTest() throws Exception {
+
+        BatchLoanDTO dto = BatchLoanDTO.builder()
+                .customer("silva")
+                .emailCustomer("silva@silva")
+                .isbns(Arrays.asList("001", "002", "003", "001"))
+                .build();
+
+        BatchLoanReportDTO report = BatchLoanReportDTO.builder()
+                .created(1)
+                .failed(3)
+                .items(Arrays.asList(
+                        BatchLoanItemDTO.builder().isbn("001").loanId(10l).build(),
+                        BatchLoanItemDTO.builder().isbn("002").error("Livro ja emprestado").build(),
+                        BatchLoanItemDTO.builder().isbn("003").error("Livro não encontrado com esse isbn fornecido").build(),
+                        BatchLoanItemDTO.builder().isbn("001").error("Isbn repetida na requisicao").build()))
+                .build();
+
+        BDDMockito.given(loanService.loanAll(dto.getIsbns(), "silva", "silva@silva")).willReturn(report);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URL.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto));
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(1))
+                .andExpect(jsonPath("failed").value(3))
+                .andExpect(jsonPath("items", hasSize(4)))
+                .andExpect(jsonPath("items[0].loanId").value(10))
+                .andExpect(jsonPath("items[1].error").value("Livro ja emprestado"))
+                .andExpect(jsonPath("items[2].error").value("Livro não encontrado com esse isbn fornecido"))
+                .andExpect(jsonPath("items[3].error").value("Isbn repetida na requisicao"));
+
+        Mockito.verify(loanService, Mockito.never()).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro de validacao ao realizar emprestimo em lote sem isbns")
+    public void createBatchLoanWithoutIsbnsTest() throws Exception {
+
+        BatchLoanDTO dto = BatchLoanDTO.builder().customer("silva").isbns(Collections.emptyList()).build();
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URL.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto));
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos em massa informando os nao encontrados")
+    public void returnBooksTest() throws Exception {
+
+        BatchReturnDTO dto = BatchReturnDTO.builder()
+                .loanIds(Arrays.asList(1l, 2l))
+                .isbns(Arrays.asList("001"))
+                .build();
+
+        BDDMockito.given(loanService.returnAll(dto.getLoanIds(), dto.getIsbns()))
+                .willReturn(BatchReturnReportDTO.builder()
+                        .returned(2)
+                        .missing(1)
+                        .missingLoanIds(Collections.singletonList(2l))
+                        .missingIsbns(Collections.emptyList())
+                        .build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URL.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto));
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("returned").value(2))
+                .andExpect(jsonPath("missing").value(1))
+                .andExpect(jsonPath("missingLoanIds[0]").value(2));
+
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro ao devolver em massa sem ids nem isbns")
+    public void returnBooksWithoutItemsTest() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_URL.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}");
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Informe os ids dos emprestimos ou as isbns"));
+    }
+
+    @Test
+    @DisplayName("Deve informar o total de emprestimos atrasados")
+    public void countOverdueTest() throws Exception {
+
+        BDDMockito.given(loanService.countLateLoans()).willReturn(12l);
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_URL.concat("/overdue/count")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("overdue").value(12));
+    }
+
+    @Test
+    @DisplayName("Deve listar as particoes de ids para exportacao paralela de emprestimos")
+    public void exportLoanPartitionsTest() throws Exception {
+
+        BDDMockito.given(exportService.loanPartitions(2))
+                .willReturn(Arrays.asList(new ExportPartitionDTO(1l, 51l), new ExportPartitionDTO(51l, 101l)));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_URL.concat("/export/partitions?count=2")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[1].fromId").value(51))
+                .andExpect(jsonPath("[1].toId").value(101));
+    }
+
+    @Test
+    @DisplayName("Deve realizar uma pesquisa de emprestimos paginando por cursor")
+    public void findLoanAfterCursor() throws Exception {
+
+        Loan loan = LoanServiceTest.createLoan();
+        KeysetCursor cursor = KeysetCursor.of(LocalDate.now().minusDays(1).toString(), 10l);
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.any(KeysetCursor.class), Mockito.eq(11)))
+                .willReturn(Arrays.asList(loan));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_URL.concat("?customer=silva&size=10&after=" + cursor.encode()))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].bookDTO.isbn").value("001"))
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("nextCursor").isEmpty());
+    }
 }
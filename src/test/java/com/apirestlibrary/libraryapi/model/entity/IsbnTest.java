@@ -0,0 +1,62 @@
+package com.apirestlibrary.libraryapi.model.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class IsbnTest {
+
+    @Test
+    @DisplayName("Deve converter isbn-10 para a chave da isbn-13 equivalente")
+    public void isbn10ToIsbn13KeyTest(){
+
+        assertThat(Isbn.keyOf("0-306-40615-2")).isEqualTo(9780306406157l);
+        assertThat(Isbn.keyOf("080442957X")).isEqualTo(9780804429573l);
+    }
+
+    @Test
+    @DisplayName("Deve aceitar isbn-13 com ou sem hifens e espacos")
+    public void isbn13KeyTest(){
+
+        assertThat(Isbn.keyOf("978-0-306-40615-7")).isEqualTo(9780306406157l);
+        assertThat(Isbn.keyOf("978 0306406157")).isEqualTo(9780306406157l);
+    }
+
+    @Test
+    @DisplayName("Deve recusar isbns com digito verificador ou formato invalido")
+    public void invalidIsbnTest(){
+
+        assertThat(Isbn.isValid("978-0-306-40615-0")).isFalse();
+        assertThat(Isbn.isValid("0-306-40615-3")).isFalse();
+        assertThat(Isbn.isValid("1230306406157")).isFalse();
+        assertThat(Isbn.isValid("12345678901")).isFalse();
+        assertThat(Isbn.isValid("abc")).isFalse();
+        assertThat(Isbn.isValid(" ")).isFalse();
+        assertThat(Isbn.keyOf(null)).isEqualTo(Isbn.NO_KEY);
+    }
+
+    @Test
+    @DisplayName("Deve manter codigos numericos curtos do acervo como chave")
+    public void internalCodeKeyTest(){
+
+        assertThat(Isbn.keyOf("123")).isEqualTo(3_000_000_123l);
+        assertThat(Isbn.keyOf("001")).isEqualTo(3_000_000_001l);
+        assertThat(Isbn.keyOf("999999999")).isEqualTo(9_999_999_999l);
+    }
+
+    @Test
+    @DisplayName("Nao deve colidir codigos do acervo que diferem so nos zeros a esquerda")
+    public void internalCodeLeadingZerosTest(){
+
+        assertThat(Isbn.keyOf("1")).isNotEqualTo(Isbn.keyOf("01"));
+        assertThat(Isbn.keyOf("01")).isNotEqualTo(Isbn.keyOf("001"));
+        assertThat(Isbn.keyOf("1")).isNotEqualTo(Isbn.keyOf("001"));
+        assertThat(Isbn.keyOf("0-01")).isEqualTo(Isbn.keyOf("001"));
+    }
+}
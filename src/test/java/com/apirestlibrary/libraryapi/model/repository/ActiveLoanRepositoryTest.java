@@ -0,0 +1,84 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.ActiveLoan;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class ActiveLoanRepositoryTest {
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    ActiveLoanRepository repository;
+
+    @Test
+    @DisplayName("Deve reservar o livro para um unico emprestimo ate a devolucao")
+    public void reserveAndReleaseTest(){
+
+        Book book = testEntityManager.persist(BookRepositoryTest.getNewBook());
+        Book other = testEntityManager.persist(Book.builder().author("teste").title("livre").isbn("124").build());
+
+        assertThat(repository.reserve(book.getId(), 10l)).isEqualTo(1);
+        assertThat(repository.reserve(book.getId(), 10l)).isEqualTo(1);
+        assertThat(repository.reserve(book.getId(), 11l)).isZero();
+        assertThat(repository.reserve(-1l, 12l)).isZero();
+        assertThat(repository.findIdsOnLoan(Arrays.asList(book.getId(), other.getId()))).containsExactly(book.getId());
+
+        assertThat(repository.release(book.getId(), 11l)).isZero();
+        assertThat(repository.release(book.getId(), 10l)).isEqualTo(1);
+        assertThat(repository.reserve(book.getId(), 11l)).isEqualTo(1);
+
+        testEntityManager.flush();
+        testEntityManager.clear();
+        assertThat(testEntityManager.find(ActiveLoan.class, book.getId()).getLoanId()).isEqualTo(11l);
+    }
+
+    @Test
+    @DisplayName("Deve liberar em massa os livros dos emprestimos devolvidos")
+    public void releaseAllTest(){
+
+        Book first = testEntityManager.persist(BookRepositoryTest.getNewBook());
+        Book second = testEntityManager.persist(Book.builder().author("teste").title("segundo").isbn("124").build());
+        repository.reserve(first.getId(), 20l);
+        repository.reserve(second.getId(), 21l);
+
+        assertThat(repository.releaseAll(Arrays.asList(20l, 99l))).isEqualTo(1);
+
+        assertThat(repository.findByBookIdIn(Arrays.asList(first.getId(), second.getId())))
+                .extracting(ActiveLoan::getLoanId).containsExactly(21l);
+        assertThat(repository.findIdsOnLoan(Collections.singleton(first.getId()))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve travar os livros do lote e devolver so os existentes e livres")
+    public void lockAvailableTest(){
+
+        Book loaned = testEntityManager.persist(BookRepositoryTest.getNewBook());
+        Book free = testEntityManager.persist(Book.builder().author("teste").title("livre").isbn("124").build());
+        repository.reserve(loaned.getId(), 30l);
+
+        assertThat(repository.lockAvailable(Arrays.asList(loaned.getId(), free.getId(), -1l)))
+                .containsExactly(free.getId());
+
+        repository.saveAll(Collections.singletonList(ActiveLoan.builder().bookId(free.getId()).loanId(31l).build()));
+        repository.flush();
+
+        assertThat(repository.lockAvailable(Arrays.asList(loaned.getId(), free.getId()))).isEmpty();
+    }
+}
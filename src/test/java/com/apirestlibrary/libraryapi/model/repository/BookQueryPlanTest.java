@@ -0,0 +1,97 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere com o EXPLAIN do H2 que a paginacao de livros por cursor le o indice (title, id) ja ordenado.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.apirestlibrary.libraryapi.model.repository.BookQueryPlanTest$SqlCapture")
+public class BookQueryPlanTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    public void setUp(){
+        SqlCapture.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("Deve buscar a primeira pagina por cursor sem ordenar a tabela")
+    public void firstKeysetPageUsesTitleIndex() throws SQLException {
+
+        bookRepository.findByTitleKeyset(PageRequest.of(0, 10));
+
+        String plan = explainLastQuery(10);
+
+        assertThat(plan).containsIgnoringCase("ix_book_title_id").containsIgnoringCase("index sorted");
+    }
+
+    @Test
+    @DisplayName("Deve buscar as paginas seguintes por cursor sem ordenar a tabela")
+    public void nextKeysetPageUsesTitleIndex() throws SQLException {
+
+        bookRepository.findByTitleKeysetAfter("dom casmurro", 10l, PageRequest.of(0, 10));
+
+        String plan = explainLastQuery("dom casmurro", "dom casmurro", 10l, 10);
+
+        assertThat(plan).containsIgnoringCase("ix_book_title_id").containsIgnoringCase("index sorted");
+    }
+
+    private String explainLastQuery(Object... parameters) throws SQLException {
+        List<String> statements = SqlCapture.STATEMENTS;
+        String sql = statements.get(statements.size() - 1);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                explain.setObject(i + 1, parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet result = explain.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.trim().toLowerCase().startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
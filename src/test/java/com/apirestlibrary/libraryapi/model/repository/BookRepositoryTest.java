@@ -9,12 +9,25 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -27,6 +40,9 @@ public class BookRepositoryTest {
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Test
     @DisplayName("Deve retornar verdadeiro quando retornar um isbn ja registrado")
     public void returnTrueWhenIsbnExist(){
@@ -115,6 +131,113 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve paginar livros por titulo e id a partir do ultimo livro lido")
+    public void findByTitleKeysetTest(){
+
+        Book second = testEntityManager.persist(Book.builder().title("b").author("teste").isbn("002").build());
+        Book first = testEntityManager.persist(Book.builder().title("a").author("teste").isbn("001").build());
+        Book third = testEntityManager.persist(Book.builder().title("b").author("teste").isbn("003").build());
+        Book fourth = testEntityManager.persist(Book.builder().title("c").author("teste").isbn("004").build());
+
+        List<Book> firstPage = repository.findByTitleKeyset(PageRequest.of(0, 2));
+        Book last = firstPage.get(firstPage.size() - 1);
+        List<Book> secondPage = repository.findByTitleKeysetAfter(last.getTitle(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(firstPage).containsExactly(first, second);
+        assertThat(secondPage).containsExactly(third, fourth);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve obter um livro pelo id do cache de segundo nivel sem executar sql")
+    public void findByIdFromSecondLevelCache(){
+
+        Book book = repository.save(Book.builder().author("teste").title("teste").isbn("986").build());
+        try {
+            repository.findById(book.getId());
+
+            Statistics statistics = statistics();
+            Optional<Book> cached = repository.findById(book.getId());
+
+            assertThat(cached).isPresent();
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        } finally {
+            repository.delete(book);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve obter um livro pelo isbn do cache de consultas sem executar sql")
+    public void findByIsbnFromQueryCache(){
+
+        Book book = repository.save(Book.builder().author("teste").title("teste").isbn("987").build());
+        try {
+            repository.findByIsbn(book.getIsbn());
+
+            Statistics statistics = statistics();
+            Optional<Book> cached = repository.findByIsbn(book.getIsbn());
+
+            assertThat(cached).isPresent();
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        } finally {
+            repository.delete(book);
+        }
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    @DisplayName("Deve ler em streaming os livros de uma faixa de ids em ordem")
+    public void streamByIdRangeTest(){
+
+        Book first = testEntityManager.persist(Book.builder().author("a").title("a").isbn("9001").build());
+        Book second = testEntityManager.persist(Book.builder().author("b").title("b").isbn("9002").build());
+        Book third = testEntityManager.persist(Book.builder().author("c").title("c").isbn("9003").build());
+
+        try (Stream<Book> books = repository.streamByIdRange(first.getId(), third.getId())) {
+            assertThat(books.map(Book::getId).collect(Collectors.toList()))
+                    .containsExactly(first.getId(), second.getId());
+        }
+        assertThat(repository.findMinId()).isEqualTo(first.getId());
+        assertThat(repository.findMaxId()).isEqualTo(third.getId());
+    }
+
+    @Test
+    @DisplayName("Deve recusar na base a mesma isbn em formato isbn-10 e isbn-13")
+    public void uniqueIsbnKeyTest(){
+
+        repository.saveAndFlush(Book.builder().author("a").title("a").isbn("0-306-40615-2").build());
+
+        Throwable e = catchThrowable(() ->
+                repository.saveAndFlush(Book.builder().author("b").title("b").isbn("978 0 306 40615 7").build()));
+
+        assertThat(e).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(((ConstraintViolationException) e.getCause()).getConstraintName())
+                .containsIgnoringCase(Book.ISBN_UNIQUE_INDEX);
+        assertThat(repository.findExistingIsbnKeys(Arrays.asList(9780306406157l, 123l)))
+                .containsExactly(9780306406157l);
+    }
+
+    @Test
+    @DisplayName("Deve buscar o livro pela chave numerica independente do formato da isbn")
+    public void findByIsbnKeyTest(){
+
+        Book book = testEntityManager.persist(Book.builder().author("a").title("a").isbn("978-0-306-40615-7").build());
+
+        assertThat(book.getIsbnKey()).isEqualTo(9780306406157l);
+        assertThat(repository.findByIsbn("0306406152")).contains(book);
+        assertThat(repository.existsByIsbn("978-0306406157")).isTrue();
+        assertThat(repository.findByIsbn("isbn invalida")).isEmpty();
+    }
+
     public static Book getNewBook() {
         return Book.builder().author("teste").title("teste").isbn("123").build();
     }
@@ -0,0 +1,124 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere com o EXPLAIN do H2 que o sql gerado para as buscas de emprestimo usa os indices.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.apirestlibrary.libraryapi.model.repository.LoanQueryPlanTest$SqlCapture")
+public class LoanQueryPlanTest {
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    public void setUp(){
+        SqlCapture.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("Deve buscar por cliente usando o indice de cliente")
+    public void customerFilterUsesIndex() throws SQLException {
+
+        loanRepository.count(LoanSpecifications.customer("silva"));
+
+        String plan = explainLastQuery("silva");
+
+        assertThat(plan).containsIgnoringCase("ix_loan_customer").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Deve buscar por isbn usando o indice unico do livro")
+    public void isbnFilterUsesIndex() throws SQLException {
+
+        loanRepository.count(LoanSpecifications.bookIsbnKey(Isbn.keyOf("123")));
+
+        String plan = explainLastQuery();
+
+        assertThat(plan).containsIgnoringCase("ux_book_isbn").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Deve buscar por isbn ou cliente com um UNION que usa um indice em cada ramo")
+    public void isbnOrCustomerUsesUnionOfIndexes() throws SQLException {
+
+        loanRepository.findByBookIsbnOrCustomerKeyset(Isbn.keyOf("123"), "silva", PageRequest.of(0, 10));
+
+        String plan = explainLastQuery(Isbn.keyOf("123"), "silva", 10);
+
+        assertThat(plan).contains("UNION")
+                .containsIgnoringCase("ux_book_isbn")
+                .containsIgnoringCase("ix_loan_customer")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("Deve buscar emprestimos atrasados usando o indice da data do emprestimo")
+    public void lateLoansUseLoanDateIndex() throws SQLException {
+
+        loanRepository.findByLoansDateLessThanAndNotReturned(LocalDate.now());
+
+        String plan = explainLastQuery(LocalDate.now());
+
+        assertThat(plan).containsIgnoringCase("ix_loan_loan_date").doesNotContain("tableScan");
+    }
+
+    private String explainLastQuery(Object... parameters) throws SQLException {
+        List<String> statements = SqlCapture.STATEMENTS;
+        String sql = statements.get(statements.size() - 1);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                explain.setObject(i + 1, parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet result = explain.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.trim().toLowerCase().startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
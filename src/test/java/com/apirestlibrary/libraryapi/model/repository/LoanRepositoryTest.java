@@ -1,7 +1,11 @@
 package com.apirestlibrary.libraryapi.model.repository;
 
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,12 +15,20 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.apirestlibrary.libraryapi.model.repository.BookRepositoryTest.getNewBook;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,9 +41,15 @@ public class LoanRepositoryTest {
     @Autowired
     private LoanRepository loanRepository;
 
+    @Autowired
+    private BookRepository bookRepository;
+
     @Autowired
     private TestEntityManager entityManager;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     @DisplayName("deve verificar se existe emprestimo nao devolvido para o livro solicitado")
     public void existsBookAndNotReturnedTest(){
@@ -53,7 +71,7 @@ public class LoanRepositoryTest {
 
         createdAndPersistLoan(LocalDate.now());
 
-        Page<Loan> response = loanRepository.findByBookIsbnOrCustomer("123", "silva", PageRequest.of(0, 10));
+        Page<Loan> response = loanRepository.findByBookIsbnOrCustomer(Isbn.keyOf("123"), "silva", PageRequest.of(0, 10));
 
         assertThat(response.getContent()).hasSize(1);
         assertThat(response.getPageable().getPageSize()).isEqualTo(10);
@@ -88,6 +106,132 @@ public class LoanRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve buscar uma fatia de emprestimos indicando se existe proxima pagina")
+    public void findSliceByBookIsbnOrCustomer(){
+
+        Loan loan = createdAndPersistLoan(LocalDate.now());
+        entityManager.persist(Loan.builder().book(loan.getBook()).customer("silva").loanDate(LocalDate.now()).build());
+
+        Slice<Loan> response = loanRepository.findSliceByBookIsbnOrCustomer(Isbn.keyOf("123"), "silva", PageRequest.of(0, 1));
+
+        assertThat(response.getContent()).hasSize(1);
+        assertThat(response.hasNext()).isTrue();
+        assertThat(loanRepository.countByBookIsbnOrCustomer(Isbn.keyOf("123"), "silva")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve paginar emprestimos de um livro por data e id a partir do ultimo lido")
+    public void findByBookKeysetTest(){
+
+        Loan oldest = createdAndPersistLoan(LocalDate.now().minusDays(2));
+        Book book = oldest.getBook();
+        Loan newest = entityManager.persist(Loan.builder().book(book).customer("silva").loanDate(LocalDate.now()).build());
+        Loan middle = entityManager.persist(Loan.builder().book(book).customer("silva").loanDate(LocalDate.now().minusDays(1)).build());
+
+        List<Loan> firstPage = loanRepository.findByBookKeyset(book, PageRequest.of(0, 2));
+        Loan last = firstPage.get(firstPage.size() - 1);
+        List<Loan> secondPage = loanRepository.findByBookKeysetAfter(book, last.getLoanDate(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(firstPage).containsExactly(oldest, middle);
+        assertThat(secondPage).containsExactly(newest);
+    }
+
+    @Test
+    @DisplayName("Deve paginar a busca por isbn ou customer a partir do ultimo emprestimo lido")
+    public void findByBookIsbnOrCustomerKeysetTest(){
+
+        Loan first = createdAndPersistLoan(LocalDate.now());
+        Loan second = entityManager.persist(Loan.builder().book(first.getBook()).customer("souza").loanDate(LocalDate.now()).build());
+
+        List<Loan> firstPage = loanRepository.findByBookIsbnOrCustomerKeyset(Isbn.keyOf("123"), "silva", PageRequest.of(0, 1));
+        List<Loan> secondPage = loanRepository.findByBookIsbnOrCustomerKeysetAfter(
+                Isbn.keyOf("123"), "silva", first.getLoanDate(), first.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstPage).containsExactly(first);
+        assertThat(secondPage).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Deve ler em blocos apenas os campos dos emprestimos atrasados a partir do ultimo id")
+    public void findLateLoansAfterTest(){
+
+        Loan late = createdAndPersistLoan(LocalDate.now().minusDays(5));
+        late.setEmailCustomer("silva@email.com");
+        Loan otherLate = entityManager.persist(Loan.builder().book(late.getBook()).customer("souza")
+                .emailCustomer("souza@email.com").loanDate(LocalDate.now().minusDays(6)).build());
+        entityManager.persist(Loan.builder().book(late.getBook()).customer("costa")
+                .loanDate(LocalDate.now().minusDays(6)).returned(true).build());
+        entityManager.persist(Loan.builder().book(late.getBook()).customer("lima").loanDate(LocalDate.now()).build());
+
+        List<LateLoanDTO> firstChunk = loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), 0l, PageRequest.of(0, 1));
+        List<LateLoanDTO> secondChunk = loanRepository.findLateLoansAfter(
+                LocalDate.now().minusDays(4), firstChunk.get(0).getId(), PageRequest.of(0, 1));
+
+        assertThat(firstChunk).containsExactly(new LateLoanDTO(
+                late.getId(), "silva", "silva@email.com", "123", late.getLoanDate()));
+        assertThat(secondChunk).extracting(LateLoanDTO::getId).containsExactly(otherLate.getId());
+        assertThat(loanRepository.findLateLoansAfter(LocalDate.now().minusDays(4), otherLate.getId(), PageRequest.of(0, 1)))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve buscar por Specification em fatias e em listas limitadas")
+    public void findBySpecificationTest(){
+
+        Loan first = createdAndPersistLoan(LocalDate.now().minusDays(1));
+        Loan second = entityManager.persist(Loan.builder().book(first.getBook()).customer("silva").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(first.getBook()).customer("souza").loanDate(LocalDate.now()).build());
+
+        Specification<Loan> silva = LoanSpecifications.customer("silva");
+        Slice<Loan> slice = loanRepository.findSlice(silva, PageRequest.of(0, 1, Sort.by("loanDate")));
+        List<Loan> after = loanRepository.findFirst(
+                silva.and(LoanSpecifications.loanDateAfter(first.getLoanDate(), first.getId())), Sort.by("loanDate", "id"), 10);
+
+        assertThat(slice.getContent()).containsExactly(first);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(after).containsExactly(second);
+        assertThat(loanRepository.count(LoanSpecifications.bookIsbnKey(Isbn.keyOf("123")))).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer a faixa de ids incluindo emprestimos sem livro")
+    public void streamByIdRangeWithoutBookTest(){
+
+        Loan withBook = createdAndPersistLoan(LocalDate.now());
+        Loan withoutBook = entityManager.persist(Loan.builder().customer("silva").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        try (Stream<Loan> loans = loanRepository.streamByIdRange(withBook.getId(), withoutBook.getId() + 1)) {
+            assertThat(loans.map(Loan::getId).collect(Collectors.toList()))
+                    .containsExactly(withBook.getId(), withoutBook.getId());
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve obter um emprestimo e seu livro do cache de segundo nivel sem executar sql")
+    public void findByIdFromSecondLevelCache(){
+
+        Book book = bookRepository.save(Book.builder().author("teste").title("teste").isbn("988").build());
+        Loan loan = loanRepository.save(Loan.builder().book(book).customer("silva").loanDate(LocalDate.now()).build());
+        try {
+            loanRepository.findById(loan.getId());
+
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+            Loan cached = loanRepository.findById(loan.getId()).get();
+
+            assertThat(cached.getBook().getIsbn()).isEqualTo("988");
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        } finally {
+            loanRepository.delete(loan);
+            bookRepository.delete(book);
+        }
+    }
+
     public Loan createdAndPersistLoan(LocalDate loanDate){
 
         //cenario
@@ -0,0 +1,120 @@
+package com.apirestlibrary.libraryapi.model.repository;
+
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.entity.OutboxMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class OutboxMessageRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    OutboxMessageRepository repository;
+
+    @Test
+    @DisplayName("Deve recusar na base dois avisos com a mesma chave")
+    public void uniqueMessageKeyTest(){
+
+        repository.saveAndFlush(message(1l, NotificationType.LOAN_CREATED));
+
+        Throwable e = catchThrowable(() -> repository.saveAndFlush(message(1l, NotificationType.LOAN_CREATED)));
+
+        assertThat(e).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(repository.findExistingKeys(Arrays.asList("LOAN_CREATED:1", "LOAN_CREATED:2")))
+                .containsExactly("LOAN_CREATED:1");
+    }
+
+    @Test
+    @DisplayName("Deve buscar os pendentes pelo id e marcar enviados e falhos")
+    public void pendingAndMarkTest(){
+
+        OutboxMessage first = entityManager.persist(message(1l, NotificationType.LOAN_LATE));
+        OutboxMessage second = entityManager.persist(message(2l, NotificationType.LOAN_LATE));
+        OutboxMessage third = entityManager.persist(message(3l, NotificationType.LOAN_LATE));
+
+        assertThat(repository.findPendingAfter(first.getId(), 10, PageRequest.of(0, 10)))
+                .containsExactly(second, third);
+
+        repository.markSent(Collections.singletonList(first.getId()), LocalDateTime.now());
+        repository.markFailed(Collections.singletonList(second.getId()));
+        entityManager.clear();
+
+        assertThat(repository.findPendingAfter(0l, 10, PageRequest.of(0, 10)))
+                .extracting(OutboxMessage::getId).containsExactly(second.getId(), third.getId());
+        assertThat(repository.findPendingAfter(0l, 1, PageRequest.of(0, 10)))
+                .extracting(OutboxMessage::getId).containsExactly(third.getId());
+        assertThat(repository.countPending(10)).isEqualTo(2);
+        assertThat(repository.findOldestPendingCreatedAt(10)).isEqualTo(second.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Deve descartar apenas os avisos pendentes do emprestimo e do tipo informados")
+    public void deletePendingTest(){
+
+        entityManager.persist(message(1l, NotificationType.LOAN_LATE));
+        entityManager.persist(message(1l, NotificationType.LOAN_CREATED));
+        entityManager.persist(message(2l, NotificationType.LOAN_LATE));
+
+        int deleted = repository.deletePending(1l, NotificationType.LOAN_LATE);
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve apagar apenas os avisos enviados antes da data de corte")
+    public void purgeSentTest(){
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        OutboxMessage old = message(1l, NotificationType.LOAN_CREATED);
+        old.setSentAt(cutoff.minusDays(1));
+        OutboxMessage older = message(2l, NotificationType.LOAN_CREATED);
+        older.setSentAt(cutoff.minusDays(2));
+        OutboxMessage recent = message(3l, NotificationType.LOAN_CREATED);
+        recent.setSentAt(cutoff.plusDays(1));
+        old = entityManager.persist(old);
+        older = entityManager.persist(older);
+        entityManager.persist(recent);
+        entityManager.persist(message(4l, NotificationType.LOAN_CREATED));
+
+        assertThat(repository.findSentBefore(cutoff, PageRequest.of(0, 1))).containsExactly(old.getId());
+        assertThat(repository.deleteByIdIn(repository.findSentBefore(cutoff, PageRequest.of(0, 10)))).isEqualTo(2);
+
+        entityManager.clear();
+        assertThat(repository.findSentBefore(cutoff, PageRequest.of(0, 10))).isEmpty();
+        assertThat(repository.count()).isEqualTo(2);
+        assertThat(repository.existsById(older.getId())).isFalse();
+    }
+
+    private static OutboxMessage message(Long loanId, NotificationType type) {
+        return OutboxMessage.builder()
+                .messageKey(OutboxMessage.keyOf(type, loanId))
+                .type(type)
+                .loanId(loanId)
+                .recipient("silva@email.com")
+                // a base guarda microssegundos e o jdk 9+ gera nanossegundos
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS).minusSeconds(10 - loanId))
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.AutocompleteField;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.impl.AutocompleteServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class AutocompleteServiceTest {
+
+    AutocompleteService autocompleteService;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        this.autocompleteService = new AutocompleteServiceImpl(repository);
+
+        autocompleteService.index(createBook(1l, "Dom Casmurro", "Machado de Assis"));
+        autocompleteService.index(createBook(2l, "Memórias Póstumas de Brás Cubas", "Machado de Assis"));
+        autocompleteService.index(createBook(3l, "Dom Quixote", "Miguel de Cervantes"));
+    }
+
+    @Test
+    @DisplayName("Deve sugerir titulos que comecem com o prefixo ignorando maiusculas")
+    public void suggestTitlePrefixTest(){
+
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "DOM", 10))
+                .containsExactly("Dom Casmurro", "Dom Quixote");
+    }
+
+    @Test
+    @DisplayName("Deve sugerir pelo inicio de qualquer palavra e ignorar acentos")
+    public void suggestWordPrefixWithoutAccentsTest(){
+
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "postum", 10))
+                .containsExactly("Memórias Póstumas de Brás Cubas");
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "quix", 10))
+                .containsExactly("Dom Quixote");
+    }
+
+    @Test
+    @DisplayName("Deve retornar autores sem repeticao e respeitar o limite")
+    public void suggestAuthorLimitedTest(){
+
+        assertThat(autocompleteService.suggest(AutocompleteField.AUTHOR, "m", 10))
+                .containsExactly("Machado de Assis", "Miguel de Cervantes");
+        assertThat(autocompleteService.suggest(AutocompleteField.AUTHOR, "m", 1))
+                .containsExactly("Machado de Assis");
+        assertThat(autocompleteService.suggest(AutocompleteField.AUTHOR, " ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizacoes e remocoes de livros")
+    public void updateAndRemoveTest(){
+
+        autocompleteService.index(createBook(1l, "Quincas Borba", "Machado de Assis"));
+        autocompleteService.remove(2l);
+
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "dom", 10)).containsExactly("Dom Quixote");
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "memo", 10)).isEmpty();
+        assertThat(autocompleteService.suggest(AutocompleteField.AUTHOR, "machado", 10))
+                .containsExactly("Machado de Assis");
+    }
+
+    @Test
+    @DisplayName("Deve carregar as sugestoes a partir da base em blocos")
+    public void rebuildTest(){
+
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0l), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(createBook(10l, "Iracema", "José de Alencar")));
+
+        autocompleteService.rebuild();
+
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "ira", 10)).containsExactly("Iracema");
+        assertThat(autocompleteService.suggest(AutocompleteField.AUTHOR, "jose", 10)).containsExactly("José de Alencar");
+        assertThat(autocompleteService.suggest(AutocompleteField.TITLE, "dom", 10)).isEmpty();
+    }
+
+    private Book createBook(Long id, String title, String author) {
+        return Book.builder().id(id).title(title).author(author).isbn("isbn-" + id).build();
+    }
+}
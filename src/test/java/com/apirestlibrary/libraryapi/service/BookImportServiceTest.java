@@ -0,0 +1,112 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.BookImportFormat;
+import com.apirestlibrary.libraryapi.api.dto.BookImportReportDTO;
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class BookImportServiceTest {
+
+    @Autowired
+    BookImportService importService;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    BookIndexService indexService;
+
+    @AfterEach
+    public void tearDown(){
+        repository.findAll().forEach(book -> indexService.remove(book.getId()));
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um csv em varios blocos")
+    public void importCsvTest(){
+
+        StringBuilder csv = new StringBuilder("isbn,title,author\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append(100000 + i).append(",\"Livro, volume ").append(i).append("\",Autor\n");
+        }
+
+        BookImportReportDTO report = importService.importBooks(streamOf(csv.toString()), BookImportFormat.CSV);
+
+        assertThat(report.getImported()).isEqualTo(2500);
+        assertThat(report.getRejected()).isZero();
+        assertThat(repository.count()).isEqualTo(2500);
+        assertThat(repository.findByIsbn("100007")).map(Book::getTitle).hasValue("Livro, volume 7");
+        assertThat(indexService.search(Book.builder().isbn("102499").build(), PageRequest.of(0, 10)))
+                .hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar linhas invalidas, duplicadas no arquivo ou ja cadastradas")
+    public void importNdjsonWithErrorsTest(){
+
+        repository.save(Book.builder().title("Existente").author("Autor").isbn("777").build());
+
+        String ndjson = "{\"title\":\"Livro A\",\"author\":\"Autor\",\"isbn\":\"501\"}\n"
+                + "{\"title\":\"Livro B\",\"author\":\"Autor\",\"isbn\":\"501\"}\n"
+                + "\n"
+                + "{\"title\":\"Livro C\",\"author\":\"Autor\",\"isbn\":\"777\"}\n"
+                + "{\"title\":\"Livro D\",\"isbn\":\"502\"}\n"
+                + "nao e json\n"
+                + "{\"title\":\"Livro E\",\"author\":\"Autor\",\"isbn\":\"503\"}\n"
+                + "{\"title\":\"Livro F\",\"author\":\"Autor\",\"isbn\":\"978-0-306-40615-0\"}\n";
+
+        BookImportReportDTO report = importService.importBooks(streamOf(ndjson), BookImportFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(5);
+        assertThat(report.getErrors())
+                .extracting("line", "error")
+                .contains(
+                        tuple(2l, "Isbn duplicada no arquivo"),
+                        tuple(4l, "Isbn ja cadastrada"),
+                        tuple(6l, "Linha invalida"),
+                        tuple(8l, "Isbn invalida"));
+        assertThat(report.getErrors()).anySatisfy(error -> {
+            assertThat(error.getLine()).isEqualTo(5l);
+            assertThat(error.getError()).startsWith("author");
+        });
+        assertThat(repository.existsByIsbn("503")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro quando o cabecalho do csv estiver incompleto")
+    public void importCsvWithoutHeaderTest(){
+
+        Throwable e = catchThrowable(() ->
+                importService.importBooks(streamOf("title,isbn\nLivro,001\n"), BookImportFormat.CSV));
+
+        assertThat(e).isInstanceOf(BusinessException.class)
+                .hasMessage("Cabecalho do csv deve conter as colunas title, author e isbn");
+    }
+
+    private InputStream streamOf(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
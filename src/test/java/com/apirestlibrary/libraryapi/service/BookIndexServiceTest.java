@@ -0,0 +1,181 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.impl.BookIndexServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookIndexServiceTest {
+
+    BookIndexService indexService;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        this.indexService = new BookIndexServiceImpl(repository);
+
+        indexService.index(createBook(1l, "Dom Casmurro", "Machado de Assis", "978-85-0001"));
+        indexService.index(createBook(2l, "Memorias Postumas de Bras Cubas", "Machado de Assis", "978-85-0002"));
+        indexService.index(createBook(3l, "O Cortico", "Aluisio Azevedo", "978-85-0003"));
+    }
+
+    @Test
+    @DisplayName("Deve carregar o indice a partir da base em blocos")
+    public void rebuildIndexTest(){
+
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0l), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(createBook(10l, "Iracema", "Jose de Alencar", "001")));
+
+        indexService.rebuild();
+
+        Page<Long> response = indexService.search(Book.builder().title("irac").build(), PageRequest.of(0, 10));
+
+        assertThat(indexService.isReady()).isTrue();
+        assertThat(response.getContent()).containsExactly(10l);
+        assertThat(indexService.search(Book.builder().title("casmurro").build(), PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve manter gravacoes e remocoes feitas durante a recarga do indice")
+    public void rebuildWithConcurrentChangesTest(){
+
+        AtomicBoolean readyWhileRebuilding = new AtomicBoolean(true);
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0l), Mockito.any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    readyWhileRebuilding.set(indexService.isReady());
+                    // bloco lido antes da remocao do livro 2 e da troca de titulo do livro 1
+                    indexService.remove(2l);
+                    indexService.index(createBook(1l, "Quincas Borba", "Machado de Assis", "978-85-0001"));
+                    return Arrays.asList(
+                            createBook(1l, "Dom Casmurro", "Machado de Assis", "978-85-0001"),
+                            createBook(2l, "Memorias Postumas de Bras Cubas", "Machado de Assis", "978-85-0002"));
+                });
+
+        indexService.rebuild();
+
+        assertThat(readyWhileRebuilding.get()).isFalse();
+        assertThat(indexService.isReady()).isTrue();
+        assertThat(indexService.search(Book.builder().author("machado").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(1l);
+        assertThat(indexService.search(Book.builder().title("quincas").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(1l);
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros que contenham o texto ignorando maiusculas")
+    public void searchContainingIgnoreCaseTest(){
+
+        Page<Long> response = indexService.search(Book.builder().author("MACHADO").build(), PageRequest.of(0, 10));
+
+        assertThat(response.getContent()).containsExactly(1l, 2l);
+        assertThat(response.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve buscar por trechos do meio da palavra e termos curtos")
+    public void searchSubstringTest(){
+
+        assertThat(indexService.search(Book.builder().title("smur").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(1l);
+        assertThat(indexService.search(Book.builder().title("AS").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactlyInAnyOrder(1l, 2l);
+    }
+
+    @Test
+    @DisplayName("Deve cruzar os filtros de todos os campos informados")
+    public void searchWithManyFiltersTest(){
+
+        Book filter = Book.builder().author("machado").isbn("0002").build();
+
+        Page<Long> response = indexService.search(filter, PageRequest.of(0, 10));
+
+        assertThat(response.getContent()).containsExactly(2l);
+    }
+
+    @Test
+    @DisplayName("Deve ranquear matches do inicio do campo antes dos demais")
+    public void searchRankedTest(){
+
+        indexService.index(createBook(4l, "Cortico e outros contos", "Anonimo", "978-85-0004"));
+
+        Page<Long> response = indexService.search(Book.builder().title("cortico").build(), PageRequest.of(0, 10));
+
+        assertThat(response.getContent()).containsExactly(4l, 3l);
+    }
+
+    @Test
+    @DisplayName("Deve paginar e ordenar os resultados do indice")
+    public void searchPagedAndSortedTest(){
+
+        Book filter = Book.builder().isbn("978").build();
+
+        Page<Long> firstPage = indexService.search(filter, PageRequest.of(0, 2, Sort.by("title")));
+        Page<Long> secondPage = indexService.search(filter, PageRequest.of(1, 2, Sort.by("title")));
+
+        assertThat(firstPage.getContent()).containsExactly(1l, 2l);
+        assertThat(secondPage.getContent()).containsExactly(3l);
+        assertThat(secondPage.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve paginar os resultados do indice por titulo e id a partir de um cursor")
+    public void searchAfterTest(){
+
+        Book filter = Book.builder().isbn("978").build();
+
+        assertThat(indexService.searchAfter(filter, null, 2)).containsExactly(1l, 2l);
+        assertThat(indexService.searchAfter(filter, KeysetCursor.of("Memorias Postumas de Bras Cubas", 2l), 2))
+                .containsExactly(3l);
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro ao ordenar por campo inexistente")
+    public void searchSortedByInvalidFieldTest(){
+
+        Throwable e = catchThrowable(() ->
+                indexService.search(Book.builder().isbn("978").build(), PageRequest.of(0, 2, Sort.by("loans"))));
+
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Campo de ordenacao invalido: loans");
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizacoes e remocoes de livros")
+    public void updateAndRemoveTest(){
+
+        indexService.index(createBook(1l, "Quincas Borba", "Machado de Assis", "978-85-0001"));
+        indexService.remove(2l);
+
+        assertThat(indexService.search(Book.builder().title("casmurro").build(), PageRequest.of(0, 10)))
+                .isEmpty();
+        assertThat(indexService.search(Book.builder().author("machado").build(), PageRequest.of(0, 10)).getContent())
+                .isEqualTo(Collections.singletonList(1l));
+    }
+
+    private Book createBook(Long id, String title, String author, String isbn) {
+        return Book.builder().id(id).title(title).author(author).isbn(isbn).build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.pagination.KeysetCursor;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.impl.BookServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Busca por exemplo usada enquanto o indice em memoria nao esta pronto, contra a base de verdade.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookServiceExampleFallbackTest {
+
+    BookService service;
+
+    @Autowired
+    BookRepository repository;
+
+    @MockBean
+    BookIndexService indexService;
+
+    @MockBean
+    CountCacheService countCacheService;
+
+    @MockBean
+    IsbnCacheService isbnCacheService;
+
+    @MockBean
+    AutocompleteService autocompleteService;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new BookServiceImpl(repository, indexService, countCacheService, isbnCacheService, autocompleteService);
+
+        Mockito.when(indexService.isReady()).thenReturn(false);
+        Mockito.when(countCacheService.count(Mockito.anyString(), Mockito.anyString(), Mockito.any(LongSupplier.class)))
+                .thenAnswer(invocation -> invocation.getArgument(2, LongSupplier.class).getAsLong());
+
+        repository.save(Book.builder().title("Dom Casmurro").author("Machado de Assis").isbn("978-85-0001").build());
+        repository.save(Book.builder().title("O Cortico").author("Aluisio Azevedo").isbn("978-85-0003").build());
+    }
+
+    @Test
+    @DisplayName("Deve buscar por exemplo ignorando os campos internos do livro")
+    public void findByExampleTest(){
+
+        Page<Book> result = service.find(Book.builder().title("dom").build(), PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent().get(0).getTitle()).isEqualTo("Dom Casmurro");
+    }
+
+    @Test
+    @DisplayName("Deve contar por exemplo ignorando os campos internos do livro")
+    public void countByExampleTest(){
+
+        assertThat(service.countApproximate(Book.builder().author("machado").build())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve buscar por exemplo em fatias sem consultar o total")
+    public void findSliceByExampleTest(){
+
+        repository.save(Book.builder().title("Dom Quixote").author("Cervantes").isbn("978-85-0004").build());
+
+        Slice<Book> first = service.findSlice(Book.builder().title("dom").build(), PageRequest.of(0, 1, Sort.by("title")));
+        Slice<Book> second = service.findSlice(Book.builder().title("dom").build(), PageRequest.of(1, 1, Sort.by("title")));
+
+        assertThat(first.getContent()).extracting(Book::getTitle).containsExactly("Dom Casmurro");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting(Book::getTitle).containsExactly("Dom Quixote");
+        assertThat(second.hasNext()).isFalse();
+        Mockito.verify(countCacheService, Mockito.never())
+                .count(Mockito.anyString(), Mockito.anyString(), Mockito.any(LongSupplier.class));
+    }
+
+    @Test
+    @DisplayName("Deve paginar por cursor filtrando por exemplo enquanto o indice carrega")
+    public void findAfterByExampleTest(){
+
+        repository.save(Book.builder().title("Dom Quixote").author("Cervantes").isbn("978-85-0004").build());
+        Book filter = Book.builder().title("dom").build();
+
+        List<Book> first = service.findAfter(filter, null, 1);
+        List<Book> second = service.findAfter(filter, KeysetCursor.of(first.get(0).getTitle(), first.get(0).getId()), 1);
+
+        assertThat(first).extracting(Book::getTitle).containsExactly("Dom Casmurro");
+        assertThat(second).extracting(Book::getTitle).containsExactly("Dom Quixote");
+    }
+}
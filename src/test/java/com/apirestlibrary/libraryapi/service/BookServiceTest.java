@@ -0,0 +1,423 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.service.impl.BookServiceImpl;
+import com.apirestlibrary.libraryapi.service.impl.IsbnCacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.hibernate.exception.ConstraintViolationException;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookServiceTest {
+
+    BookService service;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    BookIndexService indexService;
+
+    @MockBean
+    CountCacheService countCacheService;
+
+    @MockBean
+    AutocompleteService autocompleteService;
+
+    IsbnCacheService isbnCacheService;
+
+    @BeforeEach
+    public void setUp(){
+        this.isbnCacheService = new IsbnCacheServiceImpl(new SimpleMeterRegistry(), 100, 60);
+        this.service = new BookServiceImpl(repository, indexService, countCacheService, isbnCacheService,
+                autocompleteService);
+    }
+
+    @Test
+    @DisplayName("Deve salvar um livro")
+    public void saveBookTest(){
+
+        //cenario
+        Book book = getNewBook();
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(
+                Book.builder()
+                .id(1L)
+                .isbn("123")
+                .title("teste")
+                .author("teste")
+                .build());
+
+        //execução
+        Book save = service.save(book);
+        verify(indexService, times(1)).index(save);
+        verify(autocompleteService, times(1)).index(save);
+
+        //validaçao
+        assertThat(save.getId()).isNotNull();
+        assertThat(save.getAuthor()).isEqualTo("teste");
+        assertThat(save.getIsbn()).isEqualTo("123");
+        assertThat(save.getTitle()).isEqualTo("teste");
+
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro ao cadastrar livro com isbn duplicada")
+    public void shouldNotWithBookIsnbDuplicated(){
+
+        //cenario
+        Book book = getNewBook();
+
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(new DataIntegrityViolationException("duplicada",
+                new ConstraintViolationException("duplicada", null, "PUBLIC.UX_BOOK_ISBN_INDEX_1")));
+
+        //execução
+        Throwable e = Assertions.catchThrowable(() -> service.save(book));
+
+        //verificação
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Isbn ja cadastrada");
+        verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        verify(indexService, Mockito.never()).index(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro pelo ID")
+    public void getBookByIdTest(){
+
+        //cenario
+        Long id = 1l;
+        Book book = getNewBook();
+        book.setId(id);
+        Mockito.when(repository.findById(id)).thenReturn(Optional.of(book));
+
+        //execução
+        Optional<Book> findBook = service.getById(id);
+
+        //validação
+        assertThat(findBook.isPresent()).isTrue();
+        assertThat(findBook.get().getId()).isEqualTo(id);
+        assertThat(findBook.get().getIsbn()).isEqualTo(book.getIsbn());
+        assertThat(findBook.get().getAuthor()).isEqualTo(book.getAuthor());
+        assertThat(findBook.get().getTitle()).isEqualTo(book.getTitle());
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio quando nao existir o livro na base")
+    public void getBookByIdNotFoundTest(){
+
+        //cenario
+        Long id = 1l;
+        Mockito.when(repository.findById(id)).thenReturn(Optional.empty());
+
+        //execução
+        Optional<Book> findBook = service.getById(id);
+
+        //validação
+        assertThat(findBook.isPresent()).isFalse();
+
+
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro quando encontrado pelo id")
+    public void deleteBookFindById(){
+
+        //cenario
+        Book book = getNewBook();
+        book.setId(1L);
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(
+                Book.builder()
+                        .id(1L)
+                        .isbn("123")
+                        .title("teste")
+                        .author("teste")
+                        .build());
+        //execução
+        assertDoesNotThrow(() -> service.delete(book));
+
+        //verificação
+        verify(repository, Mockito.times(1)).delete(book);
+        verify(indexService, Mockito.times(1)).remove(1L);
+        verify(autocompleteService, Mockito.times(1)).remove(1L);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro quando tentar deletar um livro com id nulo ou inexistente")
+    public void returnErrorWithDeletedBookInIdNull(){
+
+        //cenario
+        Book book = getNewBook();
+
+        //execução
+        //service.delete(book);
+        Throwable e = Assertions.catchThrowable(() -> service.delete(book));
+
+
+        //verificação
+        assertThat(e).isInstanceOf(IllegalArgumentException.class).hasMessage("Id nao pode ser nulo");
+        verify(repository, Mockito.never()).delete(book);
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro quando encontrado na base")
+    public void updatedBookFounded(){
+
+        //cenario
+        Book book = getNewBook();
+        book.setId(1L);
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(
+                Book.builder()
+                        .id(1L)
+                        .isbn("123")
+                        .title("teste")
+                        .author("teste")
+                        .build());
+
+        //execução
+        Book updateBook = service.update(book);
+
+        //verificação
+        assertThat(updateBook.getId()).isNotNull();
+        assertThat(updateBook.getAuthor()).isEqualTo("teste");
+        assertThat(updateBook.getIsbn()).isEqualTo("123");
+        assertThat(updateBook.getTitle()).isEqualTo("teste");
+
+    }
+
+    @Test
+    @DisplayName("Deve tirar do cache a isbn antiga quando a atualizacao troca a isbn")
+    public void updateIsbnInvalidatesOldIsbn(){
+
+        isbnCacheService.put(Book.builder().id(1l).isbn("123").build());
+        Book book = Book.builder().id(1l).author("teste").title("teste").isbn("456").build();
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(book);
+
+        service.update(book);
+
+        assertThat(isbnCacheService.contains("123")).isFalse();
+        Book other = getNewBook();
+        Mockito.when(repository.saveAndFlush(other)).thenReturn(Book.builder().id(2l).isbn("123").build());
+        assertThat(service.save(other).getId()).isEqualTo(2l);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro quando tentar atualizar um livro com id nulo ou inexistente")
+    public void updatedErrorBook(){
+        //cenario
+        Book book = getNewBook();
+
+        //execução
+        Throwable e = Assertions.catchThrowable(() -> service.update(book));
+
+
+        //verificação
+        assertThat(e).isInstanceOf(IllegalArgumentException.class).hasMessage("Id nao pode ser nulo");
+       verify(repository, Mockito.never()).saveAndFlush(book);
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros atraves de filtros")
+    public void findBookWithFilters(){
+
+        Book book = getNewBook();
+        PageRequest pageRequest =  PageRequest.of(0,10);
+
+        List<Book> list = Arrays.asList(book);
+
+        PageImpl<Book> page = new PageImpl<Book>(Arrays.asList(book), pageRequest, 1);
+
+        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenReturn(page);
+
+        Page<Book> response = service.find(book, pageRequest);
+
+        assertThat(response.getTotalElements()).isEqualTo(1);
+        assertThat(response.getContent()).isEqualTo(list);
+        assertThat(response.getPageable().getPageNumber()).isEqualTo(0);
+        assertThat(response.getPageable().getPageSize()).isEqualTo(10);
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros atraves do indice quando estiver carregado")
+    public void findBookWithFiltersOnIndex(){
+
+        Book first = Book.builder().id(1l).isbn("001").title("teste").author("teste").build();
+        Book second = Book.builder().id(2l).isbn("002").title("teste").author("teste").build();
+        PageRequest pageRequest =  PageRequest.of(0,10);
+
+        Mockito.when(indexService.isReady()).thenReturn(true);
+        Mockito.when(indexService.search(first, pageRequest))
+                .thenReturn(new PageImpl<Long>(Arrays.asList(2l, 1l), pageRequest, 2));
+        Mockito.when(repository.findAllById(Arrays.asList(2l, 1l))).thenReturn(Arrays.asList(first, second));
+
+        Page<Book> response = service.find(first, pageRequest);
+
+        assertThat(response.getTotalElements()).isEqualTo(2);
+        assertThat(response.getContent()).containsExactly(second, first);
+        verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros sem filtros em fatias sem contagem")
+    public void findBookSliceWithoutFilters(){
+
+        Book book = getNewBook();
+        PageRequest pageRequest =  PageRequest.of(0,10);
+
+        Mockito.when(repository.findAllBy(pageRequest))
+                .thenReturn(new SliceImpl<Book>(Arrays.asList(book), pageRequest, true));
+
+        Slice<Book> response = service.findSlice(new Book(), pageRequest);
+
+        assertThat(response.getContent()).containsExactly(book);
+        assertThat(response.hasNext()).isTrue();
+        verify(repository, Mockito.never()).count();
+    }
+
+    @Test
+    @DisplayName("Deve usar o total em cache para buscas sem filtros")
+    public void countApproximateWithoutFilters(){
+
+        Mockito.when(countCacheService.count(Mockito.eq("books"), Mockito.eq("all"), Mockito.any()))
+                .thenReturn(42l);
+
+        long total = service.countApproximate(new Book());
+
+        assertThat(total).isEqualTo(42l);
+        verify(repository, Mockito.never()).count();
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro pelo Isbn")
+    public void getBookByIsbn(){
+        String isbn = "123";
+
+        Book book = Book.builder().isbn("123").title("teste").author("teste").id(1l).build();
+
+        when(repository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+
+        Optional<Book> book1 = service.getBookByIsbn(isbn);
+
+        assertThat(book1.isPresent()).isTrue();
+        assertThat(book1.get().getId()).isEqualTo(1l);
+        assertThat(book1.get().getIsbn()).isEqualTo(isbn);
+
+        verify(repository, times(1)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro pelo Isbn do cache nas consultas seguintes")
+    public void getBookByIsbnFromCache(){
+        String isbn = "123";
+
+        Book book = Book.builder().isbn("123").title("teste").author("teste").id(1l).build();
+
+        when(repository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+        when(repository.findById(1l)).thenReturn(Optional.of(book));
+
+        service.getBookByIsbn(isbn);
+        Optional<Book> cached = service.getBookByIsbn(isbn);
+
+        assertThat(cached).contains(book);
+        verify(repository, times(1)).findByIsbn(isbn);
+        verify(repository, times(1)).findById(1l);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o id em cache quando o livro relido tem outra isbn")
+    public void getBookByIsbnStaleCacheEntry(){
+
+        isbnCacheService.put(Book.builder().id(1l).isbn("123").build());
+        when(repository.findById(1l)).thenReturn(Optional.of(Book.builder().id(1l).isbn("456").build()));
+
+        Optional<Book> book = service.getBookByIsbn("123");
+
+        assertThat(book).isEmpty();
+        assertThat(isbnCacheService.contains("123")).isFalse();
+        verify(repository).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Deve recusar isbn duplicada presente no cache sem consultar a base")
+    public void shouldNotSaveDuplicatedIsbnFromCache(){
+
+        isbnCacheService.put(Book.builder().id(1l).isbn("123").build());
+
+        Throwable e = Assertions.catchThrowable(() -> service.save(getNewBook()));
+
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Isbn ja cadastrada");
+        verify(repository, Mockito.never()).saveAndFlush(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro ao cadastrar livro com isbn invalida")
+    public void shouldNotSaveInvalidIsbn(){
+
+        Book book = Book.builder().author("teste").title("teste").isbn("978-0-306-40615-0").build();
+
+        Throwable e = Assertions.catchThrowable(() -> service.save(book));
+
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Isbn invalida");
+        verify(repository, Mockito.never()).saveAndFlush(book);
+    }
+
+    @Test
+    @DisplayName("Deve repassar violacoes de integridade que nao sejam da isbn")
+    public void shouldRethrowOtherIntegrityViolations(){
+
+        Book book = getNewBook();
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("outra",
+                new ConstraintViolationException("outra", null, "PUBLIC.FK_LOAN_BOOK"));
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(violation);
+
+        Throwable e = Assertions.catchThrowable(() -> service.save(book));
+
+        assertThat(e).isSameAs(violation);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache de isbn ao deletar um livro")
+    public void invalidateIsbnCacheOnDelete(){
+
+        Book book = Book.builder().isbn("123").title("teste").author("teste").id(1l).build();
+        when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+
+        service.getBookByIsbn("123");
+        service.delete(book);
+        service.getBookByIsbn("123");
+
+        verify(repository, times(2)).findByIsbn("123");
+    }
+
+    private Book getNewBook() {
+        return Book.builder().author("teste").title("teste").isbn("123").build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.service.impl.CountCacheServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class CountCacheServiceTest {
+
+    @Test
+    @DisplayName("Deve reaproveitar o total enquanto nao houver escrita na regiao")
+    public void reuseCountWithoutWrites(){
+
+        CountCacheService cache = new CountCacheServiceImpl(60, 100);
+        AtomicLong counter = new AtomicLong();
+
+        cache.count("loans", "silva", counter::incrementAndGet);
+        long total = cache.count("loans", "silva", counter::incrementAndGet);
+
+        assertThat(total).isEqualTo(1);
+        assertThat(counter.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve recalcular o total apos escrita na regiao mesmo dentro do ttl")
+    public void recountAfterWriteWithinTtl(){
+
+        CountCacheService cache = new CountCacheServiceImpl(60, 100);
+        AtomicLong counter = new AtomicLong();
+
+        cache.count("loans", "silva", counter::incrementAndGet);
+        cache.invalidate("loans");
+        long total = cache.count("loans", "silva", counter::incrementAndGet);
+
+        assertThat(total).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve manter o total quando a escrita for em outra regiao")
+    public void keepCountAfterWriteInOtherRegion(){
+
+        CountCacheService cache = new CountCacheServiceImpl(60, 100);
+        AtomicLong counter = new AtomicLong();
+
+        cache.count("loans", "silva", counter::incrementAndGet);
+        cache.invalidate("books");
+        long total = cache.count("loans", "silva", counter::incrementAndGet);
+
+        assertThat(total).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve recalcular o total quando o ttl expirar mesmo sem escrita")
+    public void recountWhenExpired(){
+
+        CountCacheService cache = new CountCacheServiceImpl(0, 100);
+        AtomicLong counter = new AtomicLong();
+
+        cache.count("loans", "silva", counter::incrementAndGet);
+        long total = cache.count("loans", "silva", counter::incrementAndGet);
+
+        assertThat(total).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve manter os demais totais ao passar do limite de entradas")
+    public void keepOtherCountsWhenFull(){
+
+        CountCacheService cache = new CountCacheServiceImpl(60, 100);
+        AtomicLong counter = new AtomicLong();
+
+        for (int i = 0; i <= 100; i++) {
+            cache.count("books", "filtro" + i, counter::incrementAndGet);
+        }
+        long counted = counter.get();
+        for (int i = 51; i <= 100; i++) {
+            cache.count("books", "filtro" + i, counter::incrementAndGet);
+        }
+
+        // esvaziar o cache inteiro recontaria todos os 50
+        assertThat(counter.get() - counted).isLessThan(10);
+    }
+}
@@ -0,0 +1,106 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.ExportFormat;
+import com.apirestlibrary.libraryapi.api.dto.ExportPartitionDTO;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.impl.ExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ExportServiceTest {
+
+    ExportService exportService;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp(){
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.exportService = new ExportServiceImpl(bookRepository, loanRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    @DisplayName("Deve exportar os livros em ndjson desanexando cada linha escrita")
+    public void exportBooksNdjsonTest(){
+
+        Book book = Book.builder().id(1l).title("Dom Casmurro").author("Machado").isbn("001").build();
+        Mockito.when(bookRepository.streamByIdRange(Long.MIN_VALUE, Long.MAX_VALUE)).thenReturn(Stream.of(book));
+
+        StringWriter writer = new StringWriter();
+        long written = exportService.exportBooks(writer, ExportFormat.NDJSON, null, null);
+
+        assertThat(written).isEqualTo(1);
+        assertThat(writer.toString())
+                .isEqualTo("{\"id\":1,\"title\":\"Dom Casmurro\",\"author\":\"Machado\",\"isbn\":\"001\"}\n");
+        Mockito.verify(entityManager).detach(book);
+    }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos de uma faixa de ids em csv escapando os campos")
+    public void exportLoansCsvTest(){
+
+        Book book = Book.builder().id(2l).title("teste").author("teste").isbn("002").build();
+        Loan loan = Loan.builder().id(5l).book(book).customer("Silva, Jose").emailCustomer("silva@silva")
+                .loanDate(LocalDate.of(2020, 3, 1)).returned(true).build();
+        Mockito.when(loanRepository.streamByIdRange(5l, 10l)).thenReturn(Stream.of(loan));
+
+        StringWriter writer = new StringWriter();
+        exportService.exportLoans(writer, ExportFormat.CSV, 5l, 10l);
+
+        assertThat(writer.toString()).isEqualTo(
+                "id,bookId,isbn,customer,emailCustomer,loanDate,returned\n" +
+                "5,2,002,\"Silva, Jose\",silva@silva,2020-03-01,true\n");
+        Mockito.verify(entityManager).detach(loan);
+        Mockito.verify(entityManager).detach(book);
+    }
+
+    @Test
+    @DisplayName("Deve dividir a faixa de ids em particoes contiguas")
+    public void bookPartitionsTest(){
+
+        Mockito.when(bookRepository.findMinId()).thenReturn(1l);
+        Mockito.when(bookRepository.findMaxId()).thenReturn(10l);
+        Mockito.when(loanRepository.findMinId()).thenReturn(null);
+        Mockito.when(loanRepository.findMaxId()).thenReturn(null);
+
+        List<ExportPartitionDTO> partitions = exportService.bookPartitions(3);
+
+        assertThat(partitions).extracting("fromId", "toId")
+                .containsExactly(
+                        tuple(1l, 5l),
+                        tuple(5l, 9l),
+                        tuple(9l, 11l));
+        assertThat(exportService.loanPartitions(3)).isEmpty();
+    }
+}
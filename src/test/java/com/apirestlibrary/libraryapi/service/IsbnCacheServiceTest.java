@@ -0,0 +1,86 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.service.impl.IsbnCacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class IsbnCacheServiceTest {
+
+    SimpleMeterRegistry meterRegistry;
+
+    IsbnCacheService cache;
+
+    @BeforeEach
+    public void setUp(){
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.cache = new IsbnCacheServiceImpl(meterRegistry, 100, 60);
+    }
+
+    @Test
+    @DisplayName("Deve guardar apenas o id do livro e contar hits e misses")
+    public void cacheOnlyTheId(){
+
+        assertThat(cache.getId("123")).isEmpty();
+        cache.put(Book.builder().id(1l).isbn("123").title("teste").build());
+
+        assertThat(cache.getId("123")).contains(1l);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "books.isbn").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "books.isbn").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Nao deve guardar no cache livros sem id ou sem isbn valida")
+    public void notCacheUnsavedBooks(){
+
+        cache.put(Book.builder().isbn("000").build());
+        cache.put(Book.builder().id(2l).isbn("abc").build());
+
+        assertThat(cache.contains("000")).isFalse();
+        assertThat(cache.getId("abc")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve encontrar no cache a mesma isbn em outro formato")
+    public void sameKeyForIsbnFormats(){
+
+        Book book = Book.builder().id(1l).isbn("978-0-306-40615-7").build();
+        cache.put(book);
+
+        assertThat(cache.contains("0306406152")).isTrue();
+        assertThat(cache.getId("9780306406157")).contains(1l);
+    }
+
+    @Test
+    @DisplayName("Deve remover o livro do cache ao invalidar o isbn")
+    public void invalidateIsbn(){
+
+        cache.put(Book.builder().id(1l).isbn("123").build());
+        cache.invalidate("123");
+
+        assertThat(cache.contains("123")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve remover todas as isbns que apontam para o livro")
+    public void invalidateBook(){
+
+        cache.put(Book.builder().id(1l).isbn("123").build());
+        cache.put(Book.builder().id(2l).isbn("456").build());
+        cache.invalidateBook(1l);
+
+        assertThat(cache.contains("123")).isFalse();
+        assertThat(cache.getId("456")).contains(2l);
+    }
+}
@@ -0,0 +1,103 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanArchiveRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {"application.loan-archive.chunk-size=2", "application.loan-archive.retention-days=30"})
+public class LoanArchiveServiceTest {
+
+    @Autowired
+    LoanArchiveService loanArchiveService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LoanArchiveRepository archiveRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @AfterEach
+    public void tearDown(){
+        archiveRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve arquivar em blocos somente os emprestimos devolvidos fora da retencao")
+    public void archiveTest(){
+
+        Book book = bookRepository.save(Book.builder().author("teste").title("arquivo").isbn("9500").build());
+        List<Loan> old = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            old.add(loanRepository.save(createLoan(book, "antigo " + i, LocalDate.now().minusDays(60), true)));
+        }
+        Loan recent = loanRepository.save(createLoan(book, "recente", LocalDate.now().minusDays(5), true));
+        Loan open = loanRepository.save(createLoan(book, "aberto", LocalDate.now().minusDays(60), false));
+
+        int archived = loanArchiveService.archive();
+
+        assertThat(archived).isEqualTo(3);
+        assertThat(loanRepository.findAll()).extracting(Loan::getId)
+                .containsExactlyInAnyOrder(recent.getId(), open.getId());
+        assertThat(archiveRepository.findAll()).extracting(archive -> archive.getId())
+                .containsExactlyInAnyOrderElementsOf(old.stream().map(Loan::getId).collect(Collectors.toList()));
+        assertThat(archiveRepository.findAll()).allSatisfy(archive -> {
+            assertThat(archive.getCustomer()).startsWith("antigo");
+            assertThat(archive.getArchivedAt()).isNotNull();
+        });
+        assertThat(loanArchiveService.archive()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve paginar os emprestimos do livro continuando pelo historico arquivado")
+    public void loansWithHistoryTest(){
+
+        Book book = bookRepository.save(Book.builder().author("teste").title("historico").isbn("9600").build());
+        for (int i = 0; i < 3; i++) {
+            loanRepository.save(createLoan(book, "antigo " + i, LocalDate.now().minusDays(60), true));
+        }
+        loanRepository.save(createLoan(book, "recente 1", LocalDate.now().minusDays(5), true));
+        loanRepository.save(createLoan(book, "recente 2", LocalDate.now().minusDays(1), true));
+        loanArchiveService.archive();
+
+        Page<Loan> first = loanArchiveService.getLoansByBookWithHistory(book, PageRequest.of(0, 3, Sort.by("customer")));
+        Page<Loan> second = loanArchiveService.getLoansByBookWithHistory(book, PageRequest.of(1, 3, Sort.by("customer")));
+
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(first.getContent()).extracting(Loan::getCustomer)
+                .containsExactly("recente 1", "recente 2", "antigo 0");
+        assertThat(second.getContent()).extracting(Loan::getCustomer)
+                .containsExactly("antigo 1", "antigo 2");
+        assertThat(second.getContent()).allSatisfy(loan -> assertThat(loan.getBook().getId()).isEqualTo(book.getId()));
+    }
+
+    private static Loan createLoan(Book book, String customer, LocalDate loanDate, boolean returned) {
+        return Loan.builder().book(book).customer(customer).loanDate(loanDate).returned(returned).build();
+    }
+}
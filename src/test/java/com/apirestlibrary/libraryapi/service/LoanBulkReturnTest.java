@@ -0,0 +1,112 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.entity.OutboxMessage;
+import com.apirestlibrary.libraryapi.model.repository.ActiveLoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class LoanBulkReturnTest {
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    ActiveLoanRepository activeLoanRepository;
+
+    @Autowired
+    OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    public void tearDown(){
+        outboxRepository.deleteAll();
+        activeLoanRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve devolver em massa, liberar os livros e gravar os avisos de devolucao")
+    public void returnAllTest(){
+
+        Book first = bookRepository.save(Book.builder().author("teste").title("primeiro").isbn("9701").build());
+        Book second = bookRepository.save(Book.builder().author("teste").title("segundo").isbn("9702").build());
+        Book free = bookRepository.save(Book.builder().author("teste").title("livre").isbn("9703").build());
+
+        Loan byId = loanService.save(newLoan(first, "silva@email.com"));
+        Loan byIsbn = loanService.save(newLoan(second, null));
+
+        BatchReturnReportDTO report = loanService.returnAll(
+                Arrays.asList(byId.getId(), -1l), Arrays.asList("9702", "9703", "9999"));
+
+        assertThat(report.getReturned()).isEqualTo(2);
+        assertThat(report.getMissingLoanIds()).containsExactly(-1l);
+        assertThat(report.getMissingIsbns()).containsExactlyInAnyOrder("9703", "9999");
+
+        assertThat(loanRepository.findById(byId.getId()).get().getReturned()).isTrue();
+        assertThat(loanRepository.findById(byIsbn.getId()).get().getReturned()).isTrue();
+        assertThat(activeLoanRepository.findIdsOnLoan(Arrays.asList(first.getId(), second.getId(), free.getId()))).isEmpty();
+        assertThat(outboxRepository.findExistingKeys(Collections.singleton(
+                OutboxMessage.keyOf(NotificationType.LOAN_RETURNED, byId.getId())))).hasSize(1);
+
+        // o livro devolvido pode ser emprestado de novo e uma segunda devolucao nao altera nada
+        assertThat(loanService.save(newLoan(first, null)).getId()).isNotNull();
+        assertThat(loanService.returnAll(Collections.singletonList(byId.getId()), null).getMissing()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve manter em cache os emprestimos que nao foram devolvidos")
+    public void returnAllKeepsOtherLoansCachedTest(){
+
+        Book returned = bookRepository.save(Book.builder().author("teste").title("devolvido").isbn("9711").build());
+        Book kept = bookRepository.save(Book.builder().author("teste").title("mantido").isbn("9712").build());
+        Loan toReturn = loanService.save(newLoan(returned, null));
+        Loan open = loanService.save(newLoan(kept, null));
+
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        loanRepository.findById(open.getId());
+        assertThat(cache.contains(Loan.class, open.getId())).isTrue();
+
+        assertThat(loanService.returnAll(Collections.singletonList(toReturn.getId()), null).getReturned()).isEqualTo(1);
+
+        assertThat(cache.contains(Loan.class, open.getId())).isTrue();
+        assertThat(loanRepository.findById(toReturn.getId()).get().getReturned()).isTrue();
+    }
+
+    private static Loan newLoan(Book book, String email) {
+        return Loan.builder().book(book).customer("cliente").emailCustomer(email).loanDate(LocalDate.now()).build();
+    }
+}
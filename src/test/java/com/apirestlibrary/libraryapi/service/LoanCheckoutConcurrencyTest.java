@@ -0,0 +1,235 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.ActiveLoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@Slf4j
+public class LoanCheckoutConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    ActiveLoanRepository activeLoanRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown(){
+        activeLoanRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve emprestar o livro uma unica vez mesmo com varias requisicoes simultaneas")
+    public void concurrentCheckoutSameBookTest() throws Exception {
+
+        Book book = bookRepository.save(Book.builder().author("teste").title("disputado").isbn("9100").build());
+
+        for (int round = 0; round < 5; round++) {
+            AtomicInteger rejected = new AtomicInteger();
+            List<Loan> created = runConcurrently(THREADS, i -> {
+                try {
+                    return loanService.save(newLoan(book, "cliente " + i));
+                } catch (BusinessException e) {
+                    assertThat(e).hasMessage("Livro ja emprestado");
+                    rejected.incrementAndGet();
+                    return null;
+                }
+            });
+
+            assertThat(created).hasSize(1);
+            assertThat(rejected.get()).isEqualTo(THREADS - 1);
+            assertThat(loanRepository.existsBookAndNotReturned(book)).isTrue();
+            assertThat(loanRepository.countByBook(book)).isEqualTo(round + 1);
+
+            Loan active = created.get(0);
+            active.setReturned(true);
+            loanService.update(active);
+        }
+    }
+
+    @Test
+    @DisplayName("Nao deve bloquear o emprestimo de livros diferentes enquanto um livro esta travado")
+    public void distinctBooksDoNotBlockTest() throws Exception {
+
+        Book locked = bookRepository.save(Book.builder().author("teste").title("travado").isbn("9200").build());
+        List<Book> books = new ArrayList<>();
+        List<Book> serialBooks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            books.add(bookRepository.save(Book.builder().author("teste").title("livre " + i).isbn(String.valueOf(9300 + i)).build()));
+            serialBooks.add(bookRepository.save(Book.builder().author("teste").title("serial " + i).isbn(String.valueOf(9350 + i)).build()));
+        }
+
+        // segura a linha do livro travado numa transacao aberta ate o fim do teste
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        Future<?> holding = holder.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            loanService.save(newLoan(locked, "segurando"));
+            reserved.countDown();
+            await(release);
+            return null;
+        }));
+        try {
+            assertThat(reserved.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // referencia: os mesmos emprestimos um apos o outro, com o mesmo livro travado
+            long serialStart = System.nanoTime();
+            for (int i = 0; i < THREADS; i++) {
+                loanService.save(newLoan(serialBooks.get(i), "serial " + i));
+            }
+            long serialElapsed = System.nanoTime() - serialStart;
+
+            long start = System.nanoTime();
+            List<Loan> created = runConcurrently(THREADS, i -> loanService.save(newLoan(books.get(i), "cliente " + i)));
+            long elapsed = System.nanoTime() - start;
+
+            assertThat(created).hasSize(THREADS);
+            assertThat(holding.isDone()).isFalse();
+            log.info("{} emprestimos de livros distintos em {} ms em paralelo e {} ms em serie com um livro travado",
+                    THREADS, TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMillis(serialElapsed));
+            // limite folgado: se os livros distintos esperassem um pelo outro o paralelo seria
+            // serializado pelas travas e muito mais lento que a execucao em serie
+            assertThat(elapsed).isLessThan(serialElapsed * 4);
+        } finally {
+            release.countDown();
+            holding.get(10, TimeUnit.SECONDS);
+            holder.shutdown();
+        }
+        assertThat(activeLoanRepository.existsById(locked.getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve emprestar cada livro uma unica vez com lotes simultaneos que se cruzam")
+    public void concurrentOverlappingBatchesTest() throws Exception {
+
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            isbns.add(bookRepository.save(Book.builder().author("teste").title("lote " + i).isbn(String.valueOf(9500 + i)).build()).getIsbn());
+        }
+
+        AtomicInteger createdLoans = new AtomicInteger();
+        runConcurrently(THREADS, i -> {
+            List<String> batch = new ArrayList<>(isbns);
+            // ordens diferentes: a trava em ordem de id evita deadlock entre os lotes
+            Collections.rotate(batch, i);
+            createdLoans.addAndGet(loanService.loanAll(batch, "cliente " + i, null).getCreated());
+            return null;
+        });
+
+        assertThat(createdLoans.get()).isEqualTo(isbns.size());
+        assertThat(activeLoanRepository.count()).isEqualTo(isbns.size());
+    }
+
+    @Test
+    @DisplayName("Deve manter em cache os outros livros ao emprestar e devolver um livro")
+    public void checkoutKeepsOtherBooksCachedTest(){
+
+        Book borrowed = bookRepository.save(Book.builder().author("teste").title("emprestado").isbn("9400").build());
+        Book cached = bookRepository.save(Book.builder().author("teste").title("em cache").isbn("9401").build());
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        bookRepository.findById(cached.getId());
+        assertThat(cache.contains(Book.class, cached.getId())).isTrue();
+
+        Loan loan = loanService.save(newLoan(borrowed, "cliente"));
+        assertThat(cache.contains(Book.class, cached.getId())).isTrue();
+
+        loan.setReturned(true);
+        loanService.update(loan);
+        loanService.save(newLoan(borrowed, "outro cliente"));
+        loanService.returnAll(null, Collections.singletonList("9400"));
+        assertThat(cache.contains(Book.class, cached.getId())).isTrue();
+    }
+
+    private List<Loan> runConcurrently(int threads, IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Loan>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int index = i;
+                futures.add(executor.submit((Callable<Loan>) () -> {
+                    await(start);
+                    return task.run(index);
+                }));
+            }
+            start.countDown();
+
+            List<Loan> created = new ArrayList<>();
+            for (Future<Loan> future : futures) {
+                Loan loan = future.get(30, TimeUnit.SECONDS);
+                if (loan != null) {
+                    created.add(loan);
+                }
+            }
+            return created;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Loan newLoan(Book book, String customer) {
+        return Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build();
+    }
+
+    private interface IndexedTask {
+        Loan run(int index);
+    }
+}
@@ -0,0 +1,97 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
+import com.apirestlibrary.libraryapi.service.impl.LoanDueIndexServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanDueIndexServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2020, 3, 20);
+
+    LoanDueIndexService dueIndexService;
+
+    @MockBean
+    LoanRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        this.dueIndexService = new LoanDueIndexServiceImpl(repository);
+    }
+
+    @Test
+    @DisplayName("Deve carregar os emprestimos em aberto a partir da base")
+    public void rebuildTest(){
+
+        Mockito.when(repository.findOpenAfter(Mockito.eq(0l), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(openLoan(1l, TODAY.minusDays(10)), openLoan(2l, TODAY)));
+
+        dueIndexService.rebuild();
+
+        assertThat(dueIndexService.isReady()).isTrue();
+        assertThat(dueIndexService.countOverdue(TODAY)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve considerar atrasado o emprestimo com quatro dias ou mais")
+    public void overdueBoundaryTest(){
+
+        dueIndexService.add(createLoan(1l, TODAY.minusDays(3)));
+        dueIndexService.add(createLoan(2l, TODAY.minusDays(4)));
+        dueIndexService.add(createLoan(3l, TODAY.minusDays(30)));
+
+        assertThat(dueIndexService.countOverdue(TODAY)).isEqualTo(2);
+        assertThat(dueIndexService.countOverdue(TODAY.plusDays(1))).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve refletir devolucoes, reaberturas e emprestimos ja devolvidos")
+    public void addAndRemoveTest(){
+
+        dueIndexService.add(createLoan(1l, TODAY.minusDays(10)));
+        dueIndexService.add(createLoan(1l, TODAY.minusDays(10)));
+        Loan returned = createLoan(2l, TODAY.minusDays(10));
+        returned.setReturned(true);
+        dueIndexService.add(returned);
+
+        assertThat(dueIndexService.countOverdue(TODAY)).isEqualTo(1);
+
+        dueIndexService.remove(1l);
+        dueIndexService.remove(99l);
+
+        assertThat(dueIndexService.countOverdue(TODAY)).isZero();
+    }
+
+    private static Loan createLoan(Long id, LocalDate loanDate) {
+        return Loan.builder().id(id).customer("silva").loanDate(loanDate).build();
+    }
+
+    private static LoanRepository.OpenLoan openLoan(Long id, LocalDate loanDate) {
+        return new LoanRepository.OpenLoan() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDate getLoanDate() {
+                return loanDate;
+            }
+        };
+    }
+}
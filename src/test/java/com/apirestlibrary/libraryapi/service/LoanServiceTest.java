@@ -1,9 +1,18 @@
 package com.apirestlibrary.libraryapi.service;
 
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanItemDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchLoanReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.BatchReturnReportDTO;
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
 import com.apirestlibrary.libraryapi.api.dto.LoanFilterDTO;
 import com.apirestlibrary.libraryapi.api.exception.BusinessException;
+import com.apirestlibrary.libraryapi.model.entity.ActiveLoan;
 import com.apirestlibrary.libraryapi.model.entity.Book;
+import com.apirestlibrary.libraryapi.model.entity.Isbn;
 import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.repository.ActiveLoanRepository;
+import com.apirestlibrary.libraryapi.model.repository.BookRepository;
 import com.apirestlibrary.libraryapi.model.repository.LoanRepository;
 import com.apirestlibrary.libraryapi.service.impl.LoanServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,17 +21,32 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -41,9 +65,28 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    ActiveLoanRepository activeLoanRepository;
+
+    @MockBean
+    CountCacheService countCacheService;
+
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    LoanDueIndexService dueIndexService;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void setUp(){
-        this.loanService = new LoanServiceImpl(repository);
+        this.loanService = new LoanServiceImpl(repository, bookRepository, activeLoanRepository, countCacheService,
+                outboxService, dueIndexService, transactionManager, 2);
     }
 
     @Test
@@ -72,6 +115,7 @@ public class LoanServiceTest {
                 .build();
 
         when(repository.save(savingLoan)).thenReturn(savedLoan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(1);
 
         Loan loan = loanService.save(savingLoan);
 
@@ -79,6 +123,7 @@ public class LoanServiceTest {
         assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+        verify(outboxService).enqueue(NotificationType.LOAN_CREATED, savedLoan);
 
     }
 
@@ -100,14 +145,126 @@ public class LoanServiceTest {
                 .book(book)
                 .build();
 
-        when(repository.existsBookAndNotReturned(book)).thenReturn(true);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(0);
 
         Throwable e = catchThrowable(() -> loanService.save(savingLoan));
 
         assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Livro ja emprestado");
 
-        verify(repository, Mockito.never()).save(savingLoan);
+        verify(repository, never()).existsBookAndNotReturned(Mockito.any());
+        verify(countCacheService, never()).invalidate("loans");
+        verify(outboxService, never()).enqueue(Mockito.any(), Mockito.any());
+
+    }
+
+    @Test
+    @DisplayName("Deve tratar como livro ja emprestado a espera pela linha do livro travada por outro emprestimo")
+    public void saveLoanLockTimeoutTest(){
+
+        Loan loan = createLoan();
+        when(repository.save(loan)).thenReturn(loan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenThrow(new PessimisticLockingFailureException("timeout"));
+
+        Throwable e = catchThrowable(() -> loanService.save(loan));
+
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Livro ja emprestado");
+        verify(countCacheService, never()).invalidate("loans");
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote apenas os emprestimos de livros disponiveis")
+    public void saveAllLoansTest(){
+
+        Book available = Book.builder().id(1l).isbn("001").build();
+        Book loaned = Book.builder().id(2l).isbn("002").build();
+        Loan availableLoan = Loan.builder().customer("silva").loanDate(LocalDate.now()).book(available).build();
+        Loan loanedLoan = Loan.builder().customer("silva").loanDate(LocalDate.now()).book(loaned).build();
+
+        when(activeLoanRepository.lockAvailable(Arrays.asList(1l, 2l))).thenReturn(new HashSet<>(Arrays.asList(1l)));
+        when(repository.saveAll(Arrays.asList(availableLoan)))
+                .thenReturn(Arrays.asList(Loan.builder().id(10l).customer("silva").book(available).build()));
+
+        List<Loan> saved = loanService.saveAll(Arrays.asList(availableLoan, loanedLoan));
 
+        assertThat(saved).extracting(Loan::getId).containsExactly(10l);
+        verify(activeLoanRepository).saveAll(Arrays.asList(ActiveLoan.builder().bookId(1l).loanId(10l).build()));
+        verify(activeLoanRepository, never()).reserve(Mockito.anyLong(), Mockito.anyLong());
+        verify(repository, never()).existsBookAndNotReturned(Mockito.any());
+        verify(countCacheService).invalidate("loans");
+    }
+
+    @Test
+    @DisplayName("Deve emprestar uma unica vez o livro repetido no lote")
+    public void saveAllLoansSameBookTest(){
+
+        Book book = Book.builder().id(1l).isbn("001").build();
+        Loan first = Loan.builder().customer("silva").loanDate(LocalDate.now()).book(book).build();
+        Loan second = Loan.builder().customer("souza").loanDate(LocalDate.now()).book(book).build();
+
+        when(activeLoanRepository.lockAvailable(Arrays.asList(1l, 1l))).thenReturn(new HashSet<>(Arrays.asList(1l)));
+        when(repository.saveAll(Arrays.asList(first))).thenReturn(Arrays.asList(first));
+
+        List<Loan> saved = loanService.saveAll(Arrays.asList(first, second));
+
+        assertThat(saved).containsExactly(first);
+    }
+
+    @Test
+    @DisplayName("Deve regravar o lote um emprestimo por vez deixando de fora so o livro travado")
+    public void saveAllLoansLockTimeoutTest(){
+
+        Loan freeLoan = Loan.builder().customer("silva").loanDate(LocalDate.now()).book(Book.builder().id(1l).build()).build();
+        Loan lockedLoan = Loan.builder().customer("silva").loanDate(LocalDate.now()).book(Book.builder().id(2l).build()).build();
+        AtomicLong sequence = new AtomicLong(10);
+
+        when(activeLoanRepository.lockAvailable(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> bookIds = invocation.getArgument(0);
+            if (bookIds.contains(2l)) {
+                throw new PessimisticLockingFailureException("timeout");
+            }
+            return new HashSet<>(bookIds);
+        });
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(sequence.getAndIncrement()));
+            return loans;
+        });
+
+        List<Loan> saved = loanService.saveAll(Arrays.asList(freeLoan, lockedLoan));
+
+        assertThat(saved).containsExactly(freeLoan);
+        assertThat(freeLoan.getId()).isEqualTo(10l);
+        verify(activeLoanRepository, times(3)).lockAvailable(Mockito.anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve realizar emprestimos em lote informando o resultado de cada isbn")
+    public void loanAllTest(){
+
+        Book available = Book.builder().id(1l).isbn("001").isbnKey(Isbn.keyOf("001")).build();
+        Book loaned = Book.builder().id(2l).isbn("002").isbnKey(Isbn.keyOf("002")).build();
+
+        when(bookRepository.findByIsbnKeyIn(Mockito.anyCollection())).thenReturn(Arrays.asList(available, loaned));
+        when(activeLoanRepository.lockAvailable(Mockito.anyCollection())).thenReturn(new HashSet<>(Arrays.asList(1l)));
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(10l));
+            return loans;
+        });
+
+        BatchLoanReportDTO report = loanService.loanAll(Arrays.asList("001", "002", "003", "0-01", "abc"), "silva", "silva@silva");
+
+        assertThat(report.getCreated()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(4);
+        assertThat(report.getItems()).extracting(BatchLoanItemDTO::getLoanId).containsExactly(10l, null, null, null, null);
+        assertThat(report.getItems()).extracting(BatchLoanItemDTO::getError).containsExactly(
+                null,
+                "Livro ja emprestado",
+                "Livro não encontrado com esse isbn fornecido",
+                "Isbn repetida na requisicao",
+                "Isbn invalida");
+        verify(bookRepository).findByIsbnKeyIn(Mockito.anyCollection());
     }
 
     @Test
@@ -149,6 +306,25 @@ public class LoanServiceTest {
 
         assertThat(update.getReturned()).isTrue();
         verify(repository, times(1)).save(loan);
+        verify(activeLoanRepository).release(1l, 1l);
+        verify(outboxService).discardPending(NotificationType.LOAN_LATE, loan);
+        verify(outboxService).enqueue(NotificationType.LOAN_RETURNED, loan);
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro ao reabrir um emprestimo de livro ja emprestado a outro")
+    public void reopenLoanOfLoanedBookTest(){
+
+        Loan loan = createLoan();
+        loan.setReturned(false);
+
+        when(repository.save(loan)).thenReturn(loan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(0);
+
+        Throwable e = catchThrowable(() -> loanService.update(loan));
+
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Livro ja emprestado");
+        verify(activeLoanRepository, never()).release(Mockito.anyLong(), Mockito.anyLong());
     }
 
     @Test
@@ -164,7 +340,7 @@ public class LoanServiceTest {
         PageImpl<Loan> page = new PageImpl<Loan>(Arrays.asList(loan), pageRequest, 1);
 
         Mockito.when(repository.findByBookIsbnOrCustomer(
-                Mockito.anyString(),
+                Mockito.anyLong(),
                 Mockito.anyString(),
                 Mockito.any(Pageable.class)))
                 .thenReturn(page);
@@ -178,6 +354,187 @@ public class LoanServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve buscar emprestimos em fatias sem executar a contagem")
+    public void findSliceWithFilters(){
+
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().isbn("001").customer("silva").build();
+        Loan loan = createLoan();
+        PageRequest pageRequest =  PageRequest.of(0,10);
+
+        Mockito.when(repository.findSliceByBookIsbnOrCustomer(Isbn.keyOf("001"), "silva", pageRequest))
+                .thenReturn(new SliceImpl<Loan>(Arrays.asList(loan), pageRequest, false));
+
+        Slice<Loan> response = loanService.findSlice(loanFilterDTO, pageRequest);
+
+        assertThat(response.getContent()).containsExactly(loan);
+        assertThat(response.hasNext()).isFalse();
+        verify(repository, never()).countByBookIsbnOrCustomer(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    @Test
+    @DisplayName("Deve buscar por Specification quando apenas um filtro for informado")
+    public void findWithSingleFilterUsesSpecification(){
+
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("silva").build();
+        Loan loan = createLoan();
+        PageRequest pageRequest =  PageRequest.of(0,10);
+
+        Mockito.when(repository.findAll(Mockito.<Specification<Loan>>any(), Mockito.eq(pageRequest)))
+                .thenReturn(new PageImpl<Loan>(Arrays.asList(loan), pageRequest, 1));
+
+        Page<Loan> response = loanService.find(loanFilterDTO, pageRequest);
+
+        assertThat(response.getContent()).containsExactly(loan);
+        verify(repository, never()).findByBookIsbnOrCustomer(Mockito.anyLong(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve ordenar a busca com os dois filtros pelas colunas da tabela")
+    public void findWithBothFiltersSortsByColumn(){
+
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().isbn("001").customer("silva").build();
+
+        loanService.find(loanFilterDTO, PageRequest.of(0, 10, Sort.by("loanDate").descending()));
+
+        verify(repository).findByBookIsbnOrCustomer(Isbn.keyOf("001"), "silva", PageRequest.of(0, 10, Sort.by("loan_date").descending()));
+
+        Throwable e = catchThrowable(() -> loanService.find(loanFilterDTO, PageRequest.of(0, 10, Sort.by("book"))));
+        assertThat(e).isInstanceOf(BusinessException.class).hasMessage("Campo de ordenacao invalido: book");
+    }
+
+    @Test
+    @DisplayName("Deve percorrer os emprestimos atrasados em blocos a partir do ultimo id lido")
+    public void forEachLateLoansChunkTest(){
+
+        LateLoanDTO first = LateLoanDTO.builder().id(1l).emailCustomer("a@email.com").build();
+        LateLoanDTO second = LateLoanDTO.builder().id(5l).emailCustomer("b@email.com").build();
+        LateLoanDTO third = LateLoanDTO.builder().id(9l).emailCustomer("c@email.com").build();
+
+        when(repository.findLateLoansAfter(Mockito.any(LocalDate.class), Mockito.eq(0l), Mockito.eq(PageRequest.of(0, 2))))
+                .thenReturn(Arrays.asList(first, second));
+        when(repository.findLateLoansAfter(Mockito.any(LocalDate.class), Mockito.eq(5l), Mockito.eq(PageRequest.of(0, 2))))
+                .thenReturn(Arrays.asList(third));
+
+        List<List<LateLoanDTO>> chunks = new ArrayList<>();
+        loanService.forEachLateLoansChunk(2, chunks::add);
+
+        assertThat(chunks).containsExactly(Arrays.asList(first, second), Arrays.asList(third));
+        verify(repository, never()).findByLoansDateLessThanAndNotReturned(Mockito.any());
+        verify(repository, never()).findLateLoansAfter(Mockito.any(LocalDate.class), Mockito.eq(9l), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve invalidar os totais em cache ao salvar um emprestimo")
+    public void invalidateCountsOnSave(){
+
+        Loan loan = createLoan();
+        when(repository.save(loan)).thenReturn(loan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(1);
+
+        loanService.save(loan);
+
+        verify(countCacheService, times(1)).invalidate("loans");
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos por id e isbn em blocos marcando as entidades travadas")
+    public void returnAllTest(){
+
+        Book book = Book.builder().id(10l).isbn("123").isbnKey(Isbn.keyOf("123")).build();
+        when(bookRepository.findByIsbnKeyIn(Mockito.anyCollection())).thenReturn(Arrays.asList(book));
+        when(activeLoanRepository.findByBookIdIn(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(ActiveLoan.builder().bookId(10l).loanId(4l).build()));
+        Map<Long, Loan> loans = new HashMap<>();
+        when(repository.findOpenForReturn(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id != 3l)
+                    .map(id -> loans.computeIfAbsent(id, LoanServiceTest::openLoan)).collect(Collectors.toList());
+        });
+
+        BatchReturnReportDTO report = loanService.returnAll(Arrays.asList(1l, 2l, 3l, 1l), Arrays.asList("123", "abc", "456"));
+
+        assertThat(report.getReturned()).isEqualTo(3);
+        assertThat(report.getMissing()).isEqualTo(3);
+        assertThat(report.getMissingLoanIds()).containsExactly(3l);
+        assertThat(report.getMissingIsbns()).containsExactlyInAnyOrder("abc", "456");
+
+        assertThat(loans.keySet()).containsExactlyInAnyOrder(1l, 2l, 4l);
+        assertThat(loans.values()).allMatch(Loan::getReturned);
+        verify(activeLoanRepository).releaseAll(Arrays.asList(1l, 2l));
+        verify(activeLoanRepository).releaseAll(Arrays.asList(4l));
+        verify(outboxService).discardPending(NotificationType.LOAN_LATE, Arrays.asList(1l, 2l));
+        verify(outboxService, times(2)).enqueueAll(Mockito.eq(NotificationType.LOAN_RETURNED), Mockito.anyList());
+        verify(countCacheService).invalidate("loans");
+    }
+
+    @Test
+    @DisplayName("Nao deve atualizar nada quando nenhum emprestimo esta em aberto")
+    public void returnAllNothingOpenTest(){
+
+        when(repository.findOpenForReturn(Mockito.anyCollection())).thenReturn(new ArrayList<>());
+
+        BatchReturnReportDTO report = loanService.returnAll(Arrays.asList(1l), null);
+
+        assertThat(report.getReturned()).isZero();
+        assertThat(report.getMissingLoanIds()).containsExactly(1l);
+        verify(activeLoanRepository, never()).releaseAll(Mockito.anyCollection());
+        verify(countCacheService, never()).invalidate("loans");
+    }
+
+    @Test
+    @DisplayName("Deve manter o indice de vencimentos no emprestimo e na devolucao")
+    public void dueIndexOnSaveAndReturnTest(){
+
+        Loan loan = createLoan();
+        when(repository.save(loan)).thenReturn(loan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(1);
+
+        loanService.save(loan);
+        verify(dueIndexService).add(loan);
+
+        loan.setReturned(true);
+        loanService.update(loan);
+        verify(dueIndexService).remove(1l);
+    }
+
+    @Test
+    @DisplayName("Deve atualizar o indice de vencimentos so depois do commit")
+    public void dueIndexAfterCommitTest(){
+
+        Loan loan = createLoan();
+        when(repository.save(loan)).thenReturn(loan);
+        when(activeLoanRepository.reserve(1l, 1l)).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            loanService.save(loan);
+            verify(dueIndexService, never()).add(loan);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            verify(dueIndexService).add(loan);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve contar os atrasados pelo indice e pela base enquanto o indice carrega")
+    public void countLateLoansTest(){
+
+        when(dueIndexService.isReady()).thenReturn(false);
+        when(repository.countLateLoans(LocalDate.now().minusDays(4))).thenReturn(7l);
+        assertThat(loanService.countLateLoans()).isEqualTo(7);
+
+        when(dueIndexService.isReady()).thenReturn(true);
+        when(dueIndexService.countOverdue(LocalDate.now())).thenReturn(9l);
+        assertThat(loanService.countLateLoans()).isEqualTo(9);
+    }
+
+    private static Loan openLoan(Long id) {
+        return Loan.builder().id(id).emailCustomer("cliente" + id + "@email.com").returned(false).build();
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder()
                 .isbn("001")
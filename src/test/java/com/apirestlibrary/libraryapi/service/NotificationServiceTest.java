@@ -0,0 +1,113 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+import com.apirestlibrary.libraryapi.service.impl.NotificationServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class NotificationServiceTest {
+
+    NotificationServiceImpl notificationService;
+
+    MeterRegistry meterRegistry;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setUp(){
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.notificationService = new NotificationServiceImpl(emailService, meterRegistry, 2, 2, 10, 3, 1);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        notificationService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve remover enderecos repetidos e enviar os avisos em lotes")
+    public void dispatchDistinctInBatchesTest(){
+
+        List<String> emails = Arrays.asList("a@email.com", "B@email.com", " a@email.com", "b@email.com", "c@email.com", null, "");
+
+        NotificationReportDTO report = notificationService.dispatch("Aviso", "atrasado", emails).join();
+
+        verify(emailService).sendEmails("Aviso", "atrasado", Arrays.asList("a@email.com", "b@email.com"));
+        verify(emailService).sendEmails("Aviso", "atrasado", Collections.singletonList("c@email.com"));
+        assertThat(report.getRecipients()).isEqualTo(3);
+        assertThat(report.getBatches()).isEqualTo(2);
+        assertThat(report.getSent()).isEqualTo(3);
+        assertThat(report.getFailed()).isZero();
+        assertThat(meterRegistry.counter("notification.mail.sent").count()).isEqualTo(3);
+        assertThat(meterRegistry.timer("notification.mail.batch").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve reenviar apenas os destinatarios que falharam no lote")
+    public void retryOnlyFailedRecipientsTest(){
+
+        Map<Object, Exception> failedMessages = new HashMap<>();
+        failedMessages.put(messageTo("b@email.com"), new RuntimeException("caixa cheia"));
+        doThrow(new MailSendException(failedMessages))
+                .doNothing()
+                .when(emailService).sendEmails(eq("Aviso"), eq("atrasado"), anyList());
+
+        NotificationReportDTO report = notificationService.dispatch("Aviso", "atrasado", Arrays.asList("a@email.com", "b@email.com")).join();
+
+        verify(emailService).sendEmails("Aviso", "atrasado", Arrays.asList("a@email.com", "b@email.com"));
+        verify(emailService).sendEmails("Aviso", "atrasado", Collections.singletonList("b@email.com"));
+        assertThat(report.getSent()).isEqualTo(2);
+        assertThat(report.getFailed()).isZero();
+        assertThat(meterRegistry.counter("notification.mail.retries").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve desistir do lote apos o numero maximo de tentativas")
+    public void giveUpAfterMaxAttemptsTest(){
+
+        doThrow(new MailSendException("servidor fora do ar")).when(emailService).sendEmails(eq("Aviso"), eq("atrasado"), anyList());
+
+        NotificationReportDTO report = notificationService.dispatch("Aviso", "atrasado", Arrays.asList("a@email.com", "b@email.com")).join();
+
+        verify(emailService, times(3)).sendEmails("Aviso", "atrasado", Arrays.asList("a@email.com", "b@email.com"));
+        assertThat(report.getSent()).isZero();
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getFailedRecipients()).containsExactly("a@email.com", "b@email.com");
+        assertThat(meterRegistry.counter("notification.mail.failed").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("notification.mail.retries").count()).isEqualTo(2);
+    }
+
+    private static SimpleMailMessage messageTo(String email) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email);
+        return message;
+    }
+}
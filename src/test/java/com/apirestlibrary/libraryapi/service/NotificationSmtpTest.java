@@ -0,0 +1,116 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+import com.apirestlibrary.libraryapi.service.impl.EmailServiceImpl;
+import com.apirestlibrary.libraryapi.service.impl.NotificationServiceImpl;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.Message;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Envia os avisos para um servidor smtp em memoria (GreenMail).
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class NotificationSmtpTest {
+
+    GreenMail greenMail;
+
+    JavaMailSenderImpl mailSender;
+
+    EmailServiceImpl emailService;
+
+    NotificationServiceImpl notificationService;
+
+    @BeforeEach
+    public void setUp(){
+        greenMail = new GreenMail(new ServerSetup(0, null, ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+
+        mailSender = Mockito.spy(new JavaMailSenderImpl());
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+        mailSender.setDefaultEncoding("UTF-8");
+
+        emailService = new EmailServiceImpl(mailSender);
+        ReflectionTestUtils.setField(emailService, "remetentMail", "mail@library.com");
+        ReflectionTestUtils.setField(emailService, "poolSize", 4);
+
+        notificationService = new NotificationServiceImpl(emailService, new SimpleMeterRegistry(), 50, 4, 10, 3, 10);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        notificationService.shutdown();
+        emailService.shutdown();
+        greenMail.stop();
+    }
+
+    @Test
+    @DisplayName("Deve entregar um aviso por destinatario, sem expor os demais enderecos")
+    public void dispatchToSmtpServerTest() throws Exception {
+
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 230; i++) {
+            emails.add("cliente" + i + "@email.com");
+        }
+        emails.add("CLIENTE0@email.com");
+
+        NotificationReportDTO report = notificationService.dispatch("Livro com Empréstimo atrasado", "Devolva o livro", emails).join();
+
+        assertThat(greenMail.waitForIncomingEmail(10000, 230)).isTrue();
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(230);
+        for (MimeMessage message : received) {
+            assertThat(message.getRecipients(Message.RecipientType.TO)).hasSize(1);
+            assertThat(message.getSubject()).isEqualTo("Livro com Empréstimo atrasado");
+        }
+        assertThat(Stream.of(received).map(this::recipientOf).collect(Collectors.toSet())).hasSize(230);
+        assertThat(report.getBatches()).isEqualTo(5);
+        assertThat(report.getSent()).isEqualTo(230);
+        assertThat(report.getSentPerSecond()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Deve reaproveitar a conexao smtp entre os lotes")
+    public void reuseSmtpConnectionTest(){
+
+        emailService.sendEmails("Aviso", "primeiro lote", Arrays.asList("a@email.com", "b@email.com"));
+        emailService.sendEmails("Aviso", "segundo lote", Collections.singletonList("c@email.com"));
+
+        assertThat(greenMail.waitForIncomingEmail(10000, 3)).isTrue();
+        // o host so e lido ao abrir uma conexao
+        verify(mailSender, times(1)).getHost();
+    }
+
+    private String recipientOf(MimeMessage message) {
+        try {
+            return message.getRecipients(Message.RecipientType.TO)[0].toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
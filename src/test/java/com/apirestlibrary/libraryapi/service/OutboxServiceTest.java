@@ -0,0 +1,144 @@
+package com.apirestlibrary.libraryapi.service;
+
+import com.apirestlibrary.libraryapi.api.dto.LateLoanDTO;
+import com.apirestlibrary.libraryapi.api.dto.NotificationReportDTO;
+import com.apirestlibrary.libraryapi.model.entity.Loan;
+import com.apirestlibrary.libraryapi.model.entity.NotificationType;
+import com.apirestlibrary.libraryapi.model.entity.OutboxMessage;
+import com.apirestlibrary.libraryapi.model.repository.OutboxMessageRepository;
+import com.apirestlibrary.libraryapi.service.impl.OutboxServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class OutboxServiceTest {
+
+    OutboxService outboxService;
+
+    MeterRegistry meterRegistry;
+
+    @MockBean
+    OutboxMessageRepository repository;
+
+    @MockBean
+    NotificationService notificationService;
+
+    @BeforeEach
+    public void setUp(){
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.outboxService = new OutboxServiceImpl(repository, notificationService, meterRegistry, 2, 10, 30, 2,
+                "atrasado", "registrado", "devolvido");
+    }
+
+    @Test
+    @DisplayName("Deve gravar no outbox um aviso por emprestimo atrasado, ignorando os ja gravados no dia")
+    @SuppressWarnings("unchecked")
+    public void enqueueLateLoansTest(){
+
+        String today = ":" + LocalDate.now();
+        when(repository.findExistingKeys(Mockito.anyCollection()))
+                .thenReturn(Collections.singletonList("LOAN_LATE:1" + today));
+
+        outboxService.enqueueLateLoans(Arrays.asList(
+                LateLoanDTO.builder().id(1l).emailCustomer("a@email.com").build(),
+                LateLoanDTO.builder().id(2l).emailCustomer(" B@email.com ").build(),
+                LateLoanDTO.builder().id(3l).build()));
+
+        ArgumentCaptor<List<OutboxMessage>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(1);
+        assertThat(saved.getValue().get(0).getMessageKey()).isEqualTo("LOAN_LATE:2" + today);
+        assertThat(saved.getValue().get(0).getRecipient()).isEqualTo("b@email.com");
+        assertThat(saved.getValue().get(0).getType()).isEqualTo(NotificationType.LOAN_LATE);
+    }
+
+    @Test
+    @DisplayName("Nao deve gravar aviso para emprestimo sem email")
+    public void enqueueWithoutEmailTest(){
+
+        outboxService.enqueue(NotificationType.LOAN_CREATED, Loan.builder().id(1l).build());
+
+        verify(repository, never()).save(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve enviar os avisos pendentes em blocos e marcar enviados e falhos")
+    public void relayTest(){
+
+        OutboxMessage first = pendingMessage(1l, NotificationType.LOAN_LATE, "a@email.com");
+        OutboxMessage second = pendingMessage(2l, NotificationType.LOAN_LATE, "b@email.com");
+        OutboxMessage third = pendingMessage(3l, NotificationType.LOAN_RETURNED, "c@email.com");
+
+        when(repository.findPendingAfter(0l, 10, PageRequest.of(0, 2))).thenReturn(Arrays.asList(first, second));
+        when(repository.findPendingAfter(2l, 10, PageRequest.of(0, 2))).thenReturn(Collections.singletonList(third));
+        when(notificationService.dispatch("Livro com Empréstimo atrasado", "atrasado", Arrays.asList("a@email.com", "b@email.com")))
+                .thenReturn(CompletableFuture.completedFuture(NotificationReportDTO.builder()
+                        .sent(1).failed(1).failedRecipients(Collections.singletonList("b@email.com")).build()));
+        when(notificationService.dispatch("Livro devolvido", "devolvido", Collections.singletonList("c@email.com")))
+                .thenReturn(CompletableFuture.completedFuture(NotificationReportDTO.builder()
+                        .sent(1).failedRecipients(Collections.emptyList()).build()));
+        when(repository.countPending(10)).thenReturn(3l);
+
+        int sent = outboxService.relay();
+
+        assertThat(sent).isEqualTo(2);
+        verify(repository).markSent(Mockito.eq(Collections.singletonList(1l)), Mockito.any(LocalDateTime.class));
+        verify(repository).markSent(Mockito.eq(Collections.singletonList(3l)), Mockito.any(LocalDateTime.class));
+        verify(repository).markFailed(Collections.singletonList(2l));
+        assertThat(meterRegistry.counter("outbox.delivered").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("outbox.failed").count()).isEqualTo(1);
+        assertThat(meterRegistry.timer("outbox.delivery.lag").count()).isEqualTo(2);
+        assertThat(meterRegistry.get("outbox.pending").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve apagar os avisos enviados fora da retencao em blocos")
+    public void purgeSentTest(){
+
+        when(repository.findSentBefore(Mockito.any(LocalDateTime.class), Mockito.eq(PageRequest.of(0, 2))))
+                .thenReturn(Arrays.asList(1l, 2l), Collections.singletonList(3l));
+        when(repository.deleteByIdIn(Mockito.anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).size());
+
+        int purged = outboxService.purgeSent();
+
+        assertThat(purged).isEqualTo(3);
+        verify(repository).deleteByIdIn(Arrays.asList(1l, 2l));
+        verify(repository).deleteByIdIn(Collections.singletonList(3l));
+    }
+
+    private static OutboxMessage pendingMessage(Long id, NotificationType type, String recipient) {
+        return OutboxMessage.builder()
+                .id(id)
+                .messageKey(OutboxMessage.keyOf(type, id))
+                .type(type)
+                .loanId(id)
+                .recipient(recipient)
+                .createdAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}